@@ -1,27 +1,49 @@
 package com.xceptance.loadtest.api.configuration;
 
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
 import java.util.StringTokenizer;
+import java.util.concurrent.ConcurrentHashMap;
 
-import com.xceptance.xlt.api.util.XltRandom;
+import org.apache.commons.lang3.tuple.Pair;
+
+import com.xceptance.loadtest.api.configuration.interfaces.Redrawable;
+import com.xceptance.loadtest.api.util.AliasTable;
 
 /**
  * A value that is based on a distribution or 0 if nothing is set
  *
  * @author Rene Schwietzke
  */
-public class ConfigDistribution
+public class ConfigDistribution implements Redrawable<ConfigDistribution>
 {
     /**
      * Default empty is always 0
      */
-    private final static int[] DEFAULT = { 0 };
+    private final static Buckets DEFAULT = new Buckets(new int[] { 0 }, new int[] { 1 });
+
+    /**
+     * Up to this total weight the deprecated {@link #raw} is filled
+     */
+    private final static int RAW_LIMIT = 1000;
+
+    /**
+     * Parsed definitions, keyed by delimiters and definition, they never change, hence share them
+     */
+    private final static ConcurrentHashMap<Pair<String, String>, Buckets> PARSED = new ConcurrentHashMap<>();
 
     /**
-     * The raw value read
+     * The parsed buckets, one entry per bucket and not per unit of weight
      */
+    public final Buckets buckets;
+
+    /**
+     * The distribution as one slot per unit of weight, shared by all distributions of the same
+     * definition, so don't change it. Only set when the weights add up to 1000 at most, null
+     * otherwise, see {@link #raw()}.
+     *
+     * @deprecated use {@link #buckets} or {@link #random()}
+     */
+    @Deprecated
     public final int[] raw;
 
     /**
@@ -50,8 +72,35 @@ public class ConfigDistribution
         }
 
         // anything to do?
-        this.raw = parseDistributionDefinition(value, delimitersToBeUsed);
-        this.value = raw[XltRandom.nextInt(raw.length)];
+        this.buckets = parseBuckets(value, delimitersToBeUsed);
+        this.raw = buckets.expanded;
+        this.value = buckets.random();
+    }
+
+    /**
+     * Copy constructor, keeps the distribution but determines a new value
+     *
+     * @param source
+     *            the distribution to copy
+     */
+    private ConfigDistribution(final ConfigDistribution source)
+    {
+        this.buckets = source.buckets;
+        this.raw = source.raw;
+        this.value = buckets.random();
+    }
+
+    /**
+     * Returns the distribution as one slot per unit of weight, expanded for every call
+     *
+     * @return the expanded distribution
+     * @deprecated use {@link #buckets} or {@link #random()}, this needs as many slots as the
+     *             weights add up to
+     */
+    @Deprecated
+    public int[] raw()
+    {
+        return buckets.expand();
     }
 
     /**
@@ -62,7 +111,16 @@ public class ConfigDistribution
      */
     public int random()
     {
-        return raw[XltRandom.nextInt(raw.length)];
+        return buckets.random();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ConfigDistribution redraw()
+    {
+        return new ConfigDistribution(this);
     }
 
     static class ImmutableConfigDistribution extends ConfigDistribution
@@ -77,6 +135,17 @@ public class ConfigDistribution
             super(value, delimiter);
         }
 
+        private ImmutableConfigDistribution(final ConfigDistribution source)
+        {
+            super(source);
+        }
+
+        @Override
+        public ConfigDistribution redraw()
+        {
+            return new ImmutableConfigDistribution(this);
+        }
+
         /* (non-Javadoc)
          * @see com.xceptance.xlt.loadtest.util.configuration.ConfigList#random()
          */
@@ -98,7 +167,8 @@ public class ConfigDistribution
     }
 
     /**
-     * Sets up the distribution
+     * Sets up the distribution as one slot per unit of weight. This is only kept for callers that
+     * need the expanded form, the distribution itself uses {@link #parseBuckets(String, String)}.
      *
      * @param data
      *            the parsable definition
@@ -107,6 +177,20 @@ public class ConfigDistribution
      * @return the distribution array
      */
     public static int[] parseDistributionDefinition(final String data, final String delimiters)
+    {
+        return parseBuckets(data, delimiters).expand();
+    }
+
+    /**
+     * Sets up the distribution or returns the already parsed one for the same definition
+     *
+     * @param data
+     *            the parsable definition
+     * @param delimiters
+     *            possible delimiters to use
+     * @return the distribution buckets
+     */
+    public static Buckets parseBuckets(final String data, final String delimiters)
     {
         if (data == null)
         {
@@ -114,27 +198,40 @@ public class ConfigDistribution
             return DEFAULT;
         }
 
-        // Internal helper class
-        class Pair
-        {
-            public Pair(final int value, final int amount)
-            {
-                super();
-                this.value = value;
-                this.amount = amount;
-            }
-
-            int value;
+        final Pair<String, String> key = Pair.of(delimiters, data);
 
-            int amount;
+        final Buckets buckets = PARSED.get(key);
+        if (buckets != null)
+        {
+            return buckets;
         }
 
-        // Initialize buckets
-        final List<Pair> buckets = new ArrayList<>();
+        final Buckets newBuckets = parse(data, delimiters);
+        final Buckets existingBuckets = PARSED.putIfAbsent(key, newBuckets);
+
+        return existingBuckets != null ? existingBuckets : newBuckets;
+    }
 
+    /**
+     * Parses the distribution
+     *
+     * @param data
+     *            the parsable definition
+     * @param delimiters
+     *            possible delimiters to use
+     * @return the distribution buckets
+     */
+    private static Buckets parse(final String data, final String delimiters)
+    {
         // Format is 1/12 2/34 40/2
         // So token is a whitespace.
         final StringTokenizer st = new StringTokenizer(data, delimiters);
+
+        // Initialize buckets
+        final int[] values = new int[st.countTokens()];
+        final int[] weights = new int[values.length];
+
+        int count = 0;
         while (st.hasMoreTokens())
         {
             final String token = st.nextToken();
@@ -143,48 +240,132 @@ public class ConfigDistribution
             {
                 // Just a 2 3 4 or something like that, it means that number
                 // into the next bucket
-                buckets.add(new Pair(buckets.size() + 1, Integer.valueOf(splitString[0])));
+                values[count] = count + 1;
+                weights[count] = Integer.valueOf(splitString[0]);
+                count++;
             }
             else if (splitString.length > 1)
             {
-                final int value = Integer.valueOf(splitString[0].trim());
-                final int amount = Integer.valueOf(splitString[1].trim());
-                buckets.add(new Pair(value, amount));
+                values[count] = Integer.valueOf(splitString[0].trim());
+                weights[count] = Integer.valueOf(splitString[1].trim());
+                count++;
             }
         }
 
-        if (buckets.isEmpty())
+        if (count == 0)
         {
             // Still no list.
             return DEFAULT;
         }
 
-        // Build the lookup array and count first to have its future size handy
-        int total = 0;
-        for (final Pair pair : buckets)
+        final Buckets buckets = new Buckets(Arrays.copyOf(values, count), Arrays.copyOf(weights, count));
+        if (buckets.table.totalWeight() == 0)
+        {
+            return DEFAULT;
+        }
+
+        return buckets;
+    }
+
+    /**
+     * The values of a distribution and their weights, sampled in constant time
+     */
+    public static class Buckets
+    {
+        /**
+         * The value per bucket
+         */
+        private final int[] values;
+
+        /**
+         * The weight per bucket
+         */
+        private final int[] weights;
+
+        /**
+         * The sampling table for the weights
+         */
+        private final AliasTable table;
+
+        /**
+         * One slot per unit of weight, what the distribution used to be, only kept for small
+         * distributions
+         */
+        private final int[] expanded;
+
+        private Buckets(final int[] values, final int[] weights)
+        {
+            this.values = values;
+            this.weights = weights;
+            this.table = new AliasTable(weights);
+            this.expanded = table.totalWeight() <= RAW_LIMIT ? expand() : null;
+        }
+
+        /**
+         * Puts every value into as many slots as its weight says
+         *
+         * @return the expanded distribution
+         */
+        private int[] expand()
         {
-            total = total + pair.amount;
+            final int[] result = new int[table.totalWeight()];
+
+            int pos = 0;
+            for (int b = 0; b < values.length; b++)
+            {
+                for (int i = 0; i < weights[b]; i++)
+                {
+                    result[pos] = values[b];
+                    pos++;
+                }
+            }
+
+            return result;
         }
 
-        if (total == 0)
+        /**
+         * Returns a random value according to the weights
+         *
+         * @return a value of the distribution
+         */
+        public int random()
         {
-            return DEFAULT;
+            return values[table.next()];
         }
 
-        // Create the array of integers
-        final int[] distributionList = new int[total];
+        /**
+         * Returns the number of buckets
+         *
+         * @return the number of buckets
+         */
+        public int size()
+        {
+            return values.length;
+        }
 
-        int pos = 0;
-        for (final Pair pair : buckets)
+        /*
+         * (non-Javadoc)
+         *
+         * @see java.lang.Object#toString()
+         */
+        @Override
+        public String toString()
         {
-            for (int i = 0; i < pair.amount; i++)
+            final int maxLen = 10;
+            final StringBuilder sb = new StringBuilder(64);
+            sb.append('[');
+            for (int i = 0; i < Math.min(values.length, maxLen); i++)
             {
-                distributionList[pos] = pair.value;
-                pos++;
+                if (i > 0)
+                {
+                    sb.append(", ");
+                }
+                sb.append(values[i]).append('/').append(weights[i]);
             }
-        }
+            sb.append(']');
 
-        return distributionList;
+            return sb.toString();
+        }
     }
 
     /*
@@ -195,8 +376,7 @@ public class ConfigDistribution
     @Override
     public String toString()
     {
-        final int maxLen = 10;
-        return "ConfigDistribution [raw=" + (raw != null ? Arrays.toString(Arrays.copyOf(raw, Math.min(raw.length, maxLen))) : null) + ", value=" + value + "]";
+        return "ConfigDistribution [buckets=" + buckets + ", value=" + value + "]";
     }
 
 }
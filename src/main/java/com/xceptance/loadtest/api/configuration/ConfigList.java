@@ -5,6 +5,8 @@ import java.util.Collections;
 import java.util.List;
 import java.util.StringTokenizer;
 
+import com.xceptance.loadtest.api.configuration.interfaces.Redrawable;
+import com.xceptance.loadtest.api.util.RandomScope;
 import com.xceptance.xlt.api.util.XltRandom;
 
 /**
@@ -12,7 +14,7 @@ import com.xceptance.xlt.api.util.XltRandom;
  *
  * @author Rene Schwietzke
  */
-public class ConfigList
+public class ConfigList implements Redrawable<ConfigList>
 {
     /**
      * The raw values read
@@ -57,7 +59,7 @@ public class ConfigList
             }
 
             this.list = Collections.unmodifiableList(newList);
-            this.value = list.isEmpty() ? null : list.get(XltRandom.nextInt(list.size()));
+            this.value = list.isEmpty() ? null : list.get(RandomScope.nextInt(list.size()));
         }
         else
         {
@@ -66,6 +68,18 @@ public class ConfigList
         }
     }
 
+    /**
+     * Copy constructor, keeps the list but determines a new value
+     *
+     * @param source
+     *            the list to copy
+     */
+    private ConfigList(final ConfigList source)
+    {
+        this.list = source.list;
+        this.value = list.isEmpty() ? null : list.get(XltRandom.nextInt(list.size()));
+    }
+
     /**
      * To get a new random value at every access
      *
@@ -76,6 +90,15 @@ public class ConfigList
         return list.isEmpty() ? null : list.get(XltRandom.nextInt(list.size()));
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ConfigList redraw()
+    {
+        return new ConfigList(this);
+    }
+
     static class ImmutableConfigList extends ConfigList
     {
         private ImmutableConfigList(final String value)
@@ -88,6 +111,17 @@ public class ConfigList
             super(value, delimiter);
         }
 
+        private ImmutableConfigList(final ConfigList source)
+        {
+            super(source);
+        }
+
+        @Override
+        public ConfigList redraw()
+        {
+            return new ImmutableConfigList(this);
+        }
+
         /* (non-Javadoc)
          * @see com.xceptance.xlt.loadtest.util.configuration.ConfigList#random()
          */
@@ -3,6 +3,8 @@ package com.xceptance.loadtest.api.configuration;
 import java.util.Optional;
 import java.util.function.Supplier;
 
+import com.xceptance.loadtest.api.configuration.interfaces.Redrawable;
+import com.xceptance.loadtest.api.util.RandomScope;
 import com.xceptance.xlt.api.util.XltRandom;
 
 /**
@@ -11,7 +13,7 @@ import com.xceptance.xlt.api.util.XltRandom;
  * @see com.xceptance.xlt.api.util.XltRandom#nextBoolean(int)
  * @author Rene Schwietzke
  */
-public class ConfigProbability
+public class ConfigProbability implements Redrawable<ConfigProbability>
 {
     /**
      * The raw value read
@@ -39,6 +41,18 @@ public class ConfigProbability
         {
             this.raw = 0;
         }
+        this.value = RandomScope.nextBoolean(raw);
+    }
+
+    /**
+     * Copy constructor, keeps the probability but determines a new value
+     *
+     * @param source
+     *            the probability to copy
+     */
+    private ConfigProbability(final ConfigProbability source)
+    {
+        this.raw = source.raw;
         this.value = XltRandom.nextBoolean(raw);
     }
 
@@ -83,6 +97,15 @@ public class ConfigProbability
         return Optional.empty();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ConfigProbability redraw()
+    {
+        return new ConfigProbability(this);
+    }
+
     public static ConfigProbability build(final String probability)
     {
         return new ConfigProbability(probability);
@@ -100,6 +123,17 @@ public class ConfigProbability
             super(probability);
         }
 
+        private ImmutableConfigProbability(final ConfigProbability source)
+        {
+            super(source);
+        }
+
+        @Override
+        public ConfigProbability redraw()
+        {
+            return new ImmutableConfigProbability(this);
+        }
+
         /*
          * (non-Javadoc)
          *
@@ -4,6 +4,8 @@ import java.text.MessageFormat;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import com.xceptance.loadtest.api.configuration.interfaces.Redrawable;
+import com.xceptance.loadtest.api.util.RandomScope;
 import com.xceptance.xlt.api.util.XltRandom;
 
 /**
@@ -11,7 +13,7 @@ import com.xceptance.xlt.api.util.XltRandom;
  *
  * @author Rene Schwietzke
  */
-public class ConfigRange
+public class ConfigRange implements Redrawable<ConfigRange>
 {
     /**
      * The raw value read for min
@@ -50,7 +52,7 @@ public class ConfigRange
             this.min = range.min;
             this.max = range.max;
 
-            this.value = XltRandom.nextInt(this.min, this.max);
+            this.value = RandomScope.nextInt(this.min, this.max);
         }
         else
         {
@@ -59,6 +61,21 @@ public class ConfigRange
         }
     }
 
+    /**
+     * Copy constructor, keeps the range but determines a new value
+     *
+     * @param source
+     *            the range to copy
+     */
+    private ConfigRange(final ConfigRange source)
+    {
+        this.min = source.min;
+        this.max = source.max;
+        this.range = source.range;
+
+        this.value = min == max ? min : XltRandom.nextInt(min, max);
+    }
+
     /**
      * To get a new random value at every access
      *
@@ -69,6 +86,15 @@ public class ConfigRange
         return XltRandom.nextInt(min, max);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ConfigRange redraw()
+    {
+        return new ConfigRange(this);
+    }
+
     public static ConfigRange build(final String key, final String range)
     {
         return new ConfigRange(key, range);
@@ -86,6 +112,17 @@ public class ConfigRange
             super(key, range);
         }
 
+        private ImmutableConfigRange(final ConfigRange source)
+        {
+            super(source);
+        }
+
+        @Override
+        public ConfigRange redraw()
+        {
+            return new ImmutableConfigRange(this);
+        }
+
         /*
          * (non-Javadoc)
          *
@@ -8,6 +8,8 @@ import java.util.regex.Pattern;
 import org.apache.commons.lang3.StringUtils;
 
 import com.xceptance.common.util.ParseUtils;
+import com.xceptance.loadtest.api.configuration.interfaces.Redrawable;
+import com.xceptance.loadtest.api.util.RandomScope;
 import com.xceptance.xlt.api.util.XltRandom;
 
 /**
@@ -20,7 +22,7 @@ import com.xceptance.xlt.api.util.XltRandom;
  *
  * @author Matthias Ullrich
  */
-public class ConfigTimeRange
+public class ConfigTimeRange implements Redrawable<ConfigTimeRange>
 {
     private static final Pattern RANGE_PATTERN = Pattern.compile("^([^-]*)-([^-]*)$");
 
@@ -77,7 +79,7 @@ public class ConfigTimeRange
             }
 
             // VALUE
-            value = XltRandom.nextInt(min, max);
+            value = RandomScope.nextInt(min, max);
         }
         else
         {
@@ -85,6 +87,20 @@ public class ConfigTimeRange
         }
     }
 
+    /**
+     * Copy constructor, keeps the range but determines a new value
+     *
+     * @param source
+     *            the time range to copy
+     */
+    private ConfigTimeRange(final ConfigTimeRange source)
+    {
+        this.min = source.min;
+        this.max = source.max;
+
+        this.value = min == max ? min : XltRandom.nextInt(min, max);
+    }
+
     /**
      * To get a new random value at every access
      *
@@ -95,6 +111,15 @@ public class ConfigTimeRange
         return XltRandom.nextInt(min, max);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ConfigTimeRange redraw()
+    {
+        return new ConfigTimeRange(this);
+    }
+
     public static ConfigTimeRange build(final String key, final String valueString)
     {
         return new ConfigTimeRange(key, valueString);
@@ -129,6 +154,17 @@ public class ConfigTimeRange
             super(key, valueString);
         }
 
+        private ImmutableConfigTimeRange(final ConfigTimeRange source)
+        {
+            super(source);
+        }
+
+        @Override
+        public ConfigTimeRange redraw()
+        {
+            return new ImmutableConfigTimeRange(this);
+        }
+
         @Override
         public int random()
         {
@@ -1,11 +1,15 @@
 package com.xceptance.loadtest.api.configuration;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
 import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
 import org.apache.commons.lang3.StringUtils;
@@ -30,6 +34,11 @@ public class ConfigurationBuilder
      */
     private final LTProperties propertyLookup;
 
+    /**
+     * The binders per configuration class, they never change
+     */
+    private static final ConcurrentHashMap<Class<?>, Binder> BINDERS = new ConcurrentHashMap<>();
+
     /**
      * Create a new configuration builder that uses certain properties
      *
@@ -69,14 +78,106 @@ public class ConfigurationBuilder
      * @throws IllegalArgumentException
      * @throws InstantiationException
      */
+    @SuppressWarnings("unchecked")
     public <T> T build(final Class<T> clazz)
     {
         try
         {
-            @SuppressWarnings("unchecked")
-            final Constructor<T>[] ctors = (Constructor<T>[]) clazz.getDeclaredConstructors();
+            final Binder binder = binder(clazz);
+
+            final T instance = (T) binder.ctor.invokeExact();
+
+            // ok, set all fields
+            for (final FieldBinder field : binder.fields)
+            {
+                field.bind(this, instance);
+            }
+
+            return instance;
+        }
+        catch (final IllegalArgumentException e)
+        {
+            throw couldNotInitialize(clazz, e);
+        }
+        catch (final RuntimeException | Error e)
+        {
+            throw e;
+        }
+        catch (final Throwable e)
+        {
+            throw couldNotInitialize(clazz, e);
+        }
+    }
+
+    /**
+     * Wraps a problem during the setup of a class
+     */
+    private static RuntimeException couldNotInitialize(final Class<?> clazz, final Throwable e)
+    {
+        return new RuntimeException(
+                        MessageFormat.format(
+                                        "Could not initialize {0} due to {1} - {2}",
+                                        clazz.toString(),
+                                        e.getClass().getSimpleName(),
+                                        e.getMessage()),
+                        e);
+    }
 
-            Constructor<T> ctor = null;
+    /**
+     * Returns the binder for a class and sets it up once if we don't know the class yet. We don't
+     * use computeIfAbsent, because the setup is expensive and might fail.
+     *
+     * @param clazz
+     *            the class to bind
+     * @return the binder for this class
+     * @throws IllegalAccessException
+     */
+    private static Binder binder(final Class<?> clazz) throws IllegalAccessException
+    {
+        final Binder binder = BINDERS.get(clazz);
+        if (binder != null)
+        {
+            return binder;
+        }
+
+        final Binder newBinder = new Binder(clazz);
+        final Binder existingBinder = BINDERS.putIfAbsent(clazz, newBinder);
+
+        return existingBinder != null ? existingBinder : newBinder;
+    }
+
+    /**
+     * Sets up a field of a configuration instance
+     */
+    @FunctionalInterface
+    private interface FieldBinder
+    {
+        public void bind(ConfigurationBuilder builder, Object instance) throws Throwable;
+    }
+
+    /**
+     * Knows how to create and set up a configuration class. All the reflection is done once when
+     * the binder is created, afterwards only method handles are invoked.
+     */
+    private static class Binder
+    {
+        /**
+         * The default constructor as ()Object
+         */
+        private final MethodHandle ctor;
+
+        /**
+         * All annotated fields
+         */
+        private final FieldBinder[] fields;
+
+        private Binder(final Class<?> clazz) throws IllegalAccessException
+        {
+            final MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+            final Constructor<?>[] ctors = clazz.getDeclaredConstructors();
+
+            Constructor<?> ctor = null;
             for (int i = 0; i < ctors.length; i++)
             {
                 ctor = ctors[i];
@@ -87,66 +188,18 @@ public class ConfigurationBuilder
             }
 
             ctor.setAccessible(true);
-            final T instance = ctor.newInstance();
-
-            // ok, get me all fields
-            final Field[] fields = instance.getClass().getDeclaredFields();
+            this.ctor = lookup.unreflectConstructor(ctor).asType(MethodType.methodType(Object.class));
 
             // ok, check all fields for our annotation
-            for (final Field field : fields)
+            final List<FieldBinder> fieldBinders = new ArrayList<>();
+            for (final Field field : clazz.getDeclaredFields())
             {
                 final Property annotation = field.getAnnotation(Property.class);
                 if (annotation != null)
                 {
                     // get access
                     field.setAccessible(true);
-
-                    // cool, we got something
-                    final Class<?> type = field.getType();
-
-                    // if string
-                    if (type == String.class)
-                    {
-                        field.set(instance, initializeString(annotation));
-                    }
-                    else if (type == int.class)
-                    {
-                        field.setInt(instance, initializeInt(annotation));
-                    }
-                    else if (type == boolean.class)
-                    {
-                        field.setBoolean(instance, initializeBoolean(annotation));
-                    }
-                    else if (type == ConfigList.class)
-                    {
-                        field.set(instance, initializeConfigList(annotation));
-                    }
-                    else if (type == ConfigRange.class)
-                    {
-                        field.set(instance, initializeConfigRange(annotation));
-                    }
-                    else if (type == ConfigTimeRange.class)
-                    {
-                        field.set(instance, initializeConfigTimeRange(annotation));
-                    }
-                    else if (type == ConfigProbability.class)
-                    {
-                        field.set(instance, initializeConfigProbability(annotation));
-                    }
-                    else if (type == ConfigDistribution.class)
-                    {
-                        field.set(instance, initializeConfigDistribution(annotation));
-                    }
-                    else if (type == Pattern.class)
-                    {
-                        field.set(instance, initializePattern(annotation));
-                    }
-                    else
-                    {
-                        // ok, deal with the rest aka all kind of custom classes we might
-                        // property-up
-                        field.set(instance, handleNestedPropertyClazz(annotation, type));
-                    }
+                    fieldBinders.add(propertyBinder(annotation, field.getType(), lookup.unreflectSetter(field)));
                 }
                 else
                 {
@@ -155,16 +208,15 @@ public class ConfigurationBuilder
                     if (enumAnnotation != null)
                     {
                         // yeah, we got an enum property, see if the type fits
-                        // get access
-                        field.setAccessible(true);
-
-                        // cool, we got something
-                        final Class<?> type = field.getType();
-
-                        // if string
-                        if (type == EnumConfigList.class)
+                        if (field.getType() == EnumConfigList.class)
                         {
-                            field.set(instance, initializeEnumConfigList(enumAnnotation));
+                            field.setAccessible(true);
+                            final MethodHandle setter = asObjectSetter(lookup.unreflectSetter(field));
+
+                            fieldBinders.add((b, o) ->
+                            {
+                                setter.invokeExact(o, (Object) b.initializeEnumConfigList(enumAnnotation));
+                            });
                         }
                         else
                         {
@@ -175,19 +227,109 @@ public class ConfigurationBuilder
                 }
             }
 
-            return instance;
+            this.fields = fieldBinders.toArray(new FieldBinder[fieldBinders.size()]);
         }
-        catch (final IllegalAccessException | InstantiationException | InvocationTargetException | IllegalArgumentException e)
+
+        /**
+         * Determines what to do for a field with a property annotation
+         *
+         * @param annotation
+         *            the annotation of the field
+         * @param type
+         *            the field type
+         * @param fieldSetter
+         *            the setter of the field
+         * @return the binder for the field
+         */
+        private static FieldBinder propertyBinder(final Property annotation, final Class<?> type, final MethodHandle fieldSetter)
         {
-            throw new RuntimeException(
-                            MessageFormat.format(
-                                            "Could not initialize {0} due to {1} - {2}",
-                                            clazz.toString(),
-                                            e.getClass().getSimpleName(),
-                                            e.getMessage()),
-                            e);
+            if (type == int.class)
+            {
+                final MethodHandle setter = fieldSetter.asType(MethodType.methodType(void.class, Object.class, int.class));
+                return (b, o) ->
+                {
+                    setter.invokeExact(o, b.initializeInt(annotation));
+                };
+            }
+            else if (type == boolean.class)
+            {
+                final MethodHandle setter = fieldSetter.asType(MethodType.methodType(void.class, Object.class, boolean.class));
+                return (b, o) ->
+                {
+                    setter.invokeExact(o, b.initializeBoolean(annotation));
+                };
+            }
+
+            final MethodHandle setter = asObjectSetter(fieldSetter);
+
+            // if string
+            if (type == String.class)
+            {
+                return (b, o) ->
+                {
+                    setter.invokeExact(o, (Object) b.initializeString(annotation));
+                };
+            }
+            else if (type == ConfigList.class)
+            {
+                return (b, o) ->
+                {
+                    setter.invokeExact(o, (Object) b.initializeConfigList(annotation));
+                };
+            }
+            else if (type == ConfigRange.class)
+            {
+                return (b, o) ->
+                {
+                    setter.invokeExact(o, (Object) b.initializeConfigRange(annotation));
+                };
+            }
+            else if (type == ConfigTimeRange.class)
+            {
+                return (b, o) ->
+                {
+                    setter.invokeExact(o, (Object) b.initializeConfigTimeRange(annotation));
+                };
+            }
+            else if (type == ConfigProbability.class)
+            {
+                return (b, o) ->
+                {
+                    setter.invokeExact(o, (Object) b.initializeConfigProbability(annotation));
+                };
+            }
+            else if (type == ConfigDistribution.class)
+            {
+                return (b, o) ->
+                {
+                    setter.invokeExact(o, (Object) b.initializeConfigDistribution(annotation));
+                };
+            }
+            else if (type == Pattern.class)
+            {
+                return (b, o) ->
+                {
+                    setter.invokeExact(o, (Object) b.initializePattern(annotation));
+                };
+            }
+            else
+            {
+                // ok, deal with the rest aka all kind of custom classes we might
+                // property-up
+                return (b, o) ->
+                {
+                    setter.invokeExact(o, (Object) b.handleNestedPropertyClazz(annotation, type));
+                };
+            }
         }
 
+        /**
+         * Turns a field setter into (Object, Object)void
+         */
+        private static MethodHandle asObjectSetter(final MethodHandle setter)
+        {
+            return setter.asType(MethodType.methodType(void.class, Object.class, Object.class));
+        }
     }
 
     /**
@@ -0,0 +1,277 @@
+package com.xceptance.loadtest.api.configuration;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import com.xceptance.loadtest.api.configuration.annotations.EnumProperty;
+import com.xceptance.loadtest.api.configuration.annotations.Property;
+import com.xceptance.loadtest.api.configuration.interfaces.Initable;
+import com.xceptance.loadtest.api.configuration.interfaces.Redrawable;
+import com.xceptance.loadtest.api.util.RandomScope;
+
+/**
+ * A fully resolved configuration that has been built once and is handed out as cheap copy for
+ * every test case execution. All parsed data is shared, only the random values of the
+ * {@link Redrawable} configuration types are determined again for each copy, so a test execution
+ * still sees its own fixed random values.
+ * <p>
+ * Only configured fields are copied, that is the declared fields the builder binds. The
+ * configuration types and the values we bind are immutable, nested configuration classes are copied
+ * field by field and get their {@link Initable#init()} call as the builder does it, and fields
+ * without annotation keep what the constructor of the copy sets them to, so no test execution can
+ * change what another one sees.
+ * The template should be built within {@link RandomScope#dedicated}, then the copies are the only
+ * ones drawing from XltRandom and every execution uses up the same random numbers, no matter whether
+ * it found a snapshot or had to build it.
+ *
+ * @param <T>
+ *            the configuration class
+ *
+ * @author agent
+ */
+public class ConfigurationSnapshot<T>
+{
+    /**
+     * The copy plans per class, they never change, hence share them
+     */
+    private static final ConcurrentHashMap<Class<?>, Plan> PLANS = new ConcurrentHashMap<>();
+
+    /**
+     * The fully built and initialized template
+     */
+    private final T template;
+
+    /**
+     * The properties the template was built from
+     */
+    private final LTProperties properties;
+
+    /**
+     * How to copy the template
+     */
+    private final Plan plan;
+
+    /**
+     * Create a snapshot from an already built configuration.
+     *
+     * @param template
+     *            the built configuration, must not be changed afterwards
+     * @param properties
+     *            the properties the configuration was built from
+     */
+    public ConfigurationSnapshot(final T template, final LTProperties properties)
+    {
+        this.template = template;
+        this.properties = properties;
+        this.plan = plan(template.getClass());
+    }
+
+    /**
+     * Returns the properties the configuration was built from. They are shared by all copies, so
+     * only read them, or hand out a copy by {@link LTProperties#LTProperties(LTProperties)} for
+     * anyone who wants to add to them.
+     *
+     * @return the properties
+     */
+    public LTProperties properties()
+    {
+        return properties;
+    }
+
+    /**
+     * Returns a fresh copy of the configuration with newly determined random values.
+     *
+     * @return a copy of the configuration
+     */
+    @SuppressWarnings("unchecked")
+    public T get()
+    {
+        return (T) plan.copy(template);
+    }
+
+    /**
+     * Get us the plan for a class, compute it once.
+     *
+     * @param clazz
+     *            the class to get the plan for
+     * @return the copy plan
+     */
+    private static Plan plan(final Class<?> clazz)
+    {
+        // no computeIfAbsent, because nested classes create their plans recursively
+        final Plan plan = PLANS.get(clazz);
+        if (plan != null)
+        {
+            return plan;
+        }
+
+        final Plan newPlan = new Plan(clazz);
+        final Plan existingPlan = PLANS.putIfAbsent(clazz, newPlan);
+
+        return existingPlan != null ? existingPlan : newPlan;
+    }
+
+    /**
+     * Knows how to copy an instance of a certain class
+     */
+    private static class Plan
+    {
+        private final MethodHandle ctor;
+
+        private final List<Accessor> copy = new ArrayList<>();
+
+        private final List<Accessor> redraw = new ArrayList<>();
+
+        private final List<Accessor> nested = new ArrayList<>();
+
+        private Plan(final Class<?> clazz)
+        {
+            final MethodHandles.Lookup lookup = MethodHandles.lookup();
+            try
+            {
+                final Constructor<?> constructor = clazz.getDeclaredConstructor();
+                constructor.setAccessible(true);
+                ctor = lookup.unreflectConstructor(constructor).asType(MethodType.methodType(Object.class));
+            }
+            catch (final NoSuchMethodException | IllegalAccessException e)
+            {
+                throw new IllegalArgumentException(MessageFormat.format("{0} needs a default constructor to be copied", clazz), e);
+            }
+
+            // the fields the builder binds, these are the declared ones of the class only
+            for (final Field field : clazz.getDeclaredFields())
+            {
+                if (Modifier.isStatic(field.getModifiers()))
+                {
+                    continue;
+                }
+
+                // the rest is up to the constructor, it is not ours to share
+                final boolean configured = field.getAnnotation(Property.class) != null || field.getAnnotation(EnumProperty.class) != null;
+                if (!configured)
+                {
+                    continue;
+                }
+
+                field.setAccessible(true);
+                final Accessor accessor = new Accessor(lookup, field);
+
+                if (Redrawable.class.isAssignableFrom(field.getType()))
+                {
+                    redraw.add(accessor);
+                }
+                else if (isNestedType(field.getType()))
+                {
+                    // mutable, even without random values
+                    nested.add(accessor);
+                }
+                else
+                {
+                    copy.add(accessor);
+                }
+            }
+        }
+
+        private Object copy(final Object source)
+        {
+            try
+            {
+                final Object target = (Object) ctor.invokeExact();
+
+                for (int i = 0; i < copy.size(); i++)
+                {
+                    final Accessor field = copy.get(i);
+                    field.setter.invokeExact(target, (Object) field.getter.invokeExact(source));
+                }
+                for (int i = 0; i < redraw.size(); i++)
+                {
+                    final Accessor field = redraw.get(i);
+                    final Redrawable<?> value = (Redrawable<?>) (Object) field.getter.invokeExact(source);
+                    field.setter.invokeExact(target, (Object) (value == null ? null : value.redraw()));
+                }
+                for (int i = 0; i < nested.size(); i++)
+                {
+                    final Accessor field = nested.get(i);
+                    final Object value = (Object) field.getter.invokeExact(source);
+                    field.setter.invokeExact(target, value == null ? null : copyNested(value));
+                }
+
+                return target;
+            }
+            catch (final RuntimeException | Error e)
+            {
+                throw e;
+            }
+            catch (final Throwable e)
+            {
+                throw new RuntimeException(
+                                MessageFormat.format(
+                                                "Could not copy {0} due to {1} - {2}",
+                                                source.getClass(),
+                                                e.getClass().getSimpleName(),
+                                                e.getMessage()),
+                                e);
+            }
+        }
+
+        /**
+         * Copies a nested configuration object and finishes it the way the builder does
+         *
+         * @param source
+         *            the nested object
+         * @return the copy
+         */
+        private static Object copyNested(final Object source)
+        {
+            final Object target = plan(source.getClass()).copy(source);
+
+            // what init derives from the configured fields is not configured, so it is not copied
+            if (target instanceof Initable)
+            {
+                ((Initable) target).init();
+            }
+
+            return target;
+        }
+
+        /**
+         * Custom classes we might have set up via properties, the rest we bind is immutable
+         */
+        private static boolean isNestedType(final Class<?> type)
+        {
+            return !type.isPrimitive() && type != String.class && type != Pattern.class;
+        }
+    }
+
+    /**
+     * Getter and setter of a field, both working on plain objects, so primitives get boxed
+     */
+    private static class Accessor
+    {
+        private final MethodHandle getter;
+
+        private final MethodHandle setter;
+
+        private Accessor(final MethodHandles.Lookup lookup, final Field field)
+        {
+            try
+            {
+                getter = lookup.unreflectGetter(field).asType(MethodType.methodType(Object.class, Object.class));
+                setter = lookup.unreflectSetter(field).asType(MethodType.methodType(void.class, Object.class, Object.class));
+            }
+            catch (final IllegalAccessException e)
+            {
+                throw new IllegalArgumentException(MessageFormat.format("Field {0} is not accessible for copying", field), e);
+            }
+        }
+    }
+}
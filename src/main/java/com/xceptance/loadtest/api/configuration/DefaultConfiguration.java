@@ -1,6 +1,7 @@
 package com.xceptance.loadtest.api.configuration;
 
 import com.xceptance.loadtest.api.configuration.annotations.EnumProperty;
+import com.xceptance.loadtest.api.configuration.annotations.Property;
 import com.xceptance.loadtest.api.data.Site;
 
 /**
@@ -17,4 +18,13 @@ public class DefaultConfiguration
     // General list of sites, just to 10, to keep lookups cheap
     @EnumProperty(key = "sites", clazz = Site.class, required = true, stopOnGap = true, byId = true)
     public EnumConfigList<Site> sites;
+
+    // ================ Accounts
+    // How long a test can hold an exclusive account before it is given to someone else
+    @Property(key = "accounts.pool.lease", required = false, fallback = "10m")
+    public ConfigTimeRange accountLeaseTimeout;
+
+    // How long a test waits for an exclusive account before it gives up
+    @Property(key = "accounts.pool.wait", required = false, fallback = "30s")
+    public ConfigTimeRange accountWaitTimeout;
 }
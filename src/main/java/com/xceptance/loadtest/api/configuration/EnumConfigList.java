@@ -8,13 +8,14 @@ import java.util.Optional;
 import org.apache.commons.lang3.tuple.Pair;
 
 import com.xceptance.loadtest.api.configuration.interfaces.ById;
+import com.xceptance.loadtest.api.configuration.interfaces.Redrawable;
 
 /**
  * A list of objects that are also build up via properties
  *
  * @author Rene Schwietzke
  */
-public class EnumConfigList<T>
+public class EnumConfigList<T> implements Redrawable<EnumConfigList<T>>
 {
     /**
      * The raw weighted value read
@@ -79,6 +80,19 @@ public class EnumConfigList<T>
         }
     }
 
+    /**
+     * Copy constructor, shares list and id lookup but determines a new value
+     *
+     * @param source
+     *            the list to copy
+     */
+    private EnumConfigList(final EnumConfigList<T> source)
+    {
+        this.weightedList = source.weightedList;
+        this.map = source.map;
+        this.value = weightedList.size() == 0 ? null : weightedList.getRandom();
+    }
+
     /**
      * Get from the underlying list
      *
@@ -164,6 +178,15 @@ public class EnumConfigList<T>
         return weightedList.getRandom();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public EnumConfigList<T> redraw()
+    {
+        return new EnumConfigList<>(this);
+    }
+
     static class ImmutableConfigList<T> extends EnumConfigList<T>
     {
         private ImmutableConfigList(final List<Pair<T, Integer>> list, final boolean byId)
@@ -171,6 +194,17 @@ public class EnumConfigList<T>
             super(list, byId);
         }
 
+        private ImmutableConfigList(final EnumConfigList<T> source)
+        {
+            super(source);
+        }
+
+        @Override
+        public EnumConfigList<T> redraw()
+        {
+            return new ImmutableConfigList<>(this);
+        }
+
         @Override
         public T random()
         {
@@ -1,9 +1,16 @@
 package com.xceptance.loadtest.api.configuration;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
+import java.util.Set;
+import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.ClassUtils;
@@ -19,10 +26,32 @@ import com.xceptance.common.util.PropertiesUtils;
 public class LTProperties
 {
     /**
-     * List of properties to run through, first hit will stop it, this is used backwards aka the
-     * newest will checked first
+     * The layers of properties, the last one added wins. The tables are immutable and shared, for
+     * instance the ones of the YAML files with all configurations built from them. Prefixed
+     * instances share the list with their origin, hence it is copied before anyone changes it.
      */
-    public final Properties properties = new Properties();
+    private List<PropertyTable> layers = new ArrayList<>();
+
+    /**
+     * Is the list of layers shared with another instance
+     */
+    private boolean shared;
+
+    /**
+     * All layers merged into one, built when needed and dropped when layers are added. Prefixed
+     * instances share it, and the context keeps one per test, user, and site, so it is built once
+     * for each of these.
+     */
+    private volatile Properties merged;
+
+    /**
+     * The raw properties, always the current state of all layers. What is put here is added as
+     * new layer, removing is not supported.
+     *
+     * @deprecated use {@link #getProperties()} to read and {@link #addProperties(Optional)} to add
+     */
+    @Deprecated
+    public final Properties properties = new PropertiesView();
 
     /**
      * A prefix to get nicer things
@@ -49,6 +78,12 @@ public class LTProperties
      */
     public final String siteId;
 
+    /**
+     * All properties resolved for our user, test, and site, keyed by the bare key and with all
+     * variables substituted. Built on first lookup and dropped when properties are added.
+     */
+    private volatile Map<String, String> resolved;
+
     /**
      * Constructor that has two contexts to lookup data
      *
@@ -67,6 +102,35 @@ public class LTProperties
         this.prefix = Optional.empty();
     }
 
+    /**
+     * Copy constructor, the copy starts with the same properties and can add its own without
+     * changing the original
+     *
+     * @param propertyLookUp
+     *            the properties to copy
+     */
+    public LTProperties(final LTProperties propertyLookUp)
+    {
+        this.fullTestClassName = propertyLookUp.fullTestClassName;
+        this.userName = propertyLookUp.userName;
+        this.shortTestClassName = propertyLookUp.shortTestClassName;
+
+        this.siteId = propertyLookUp.siteId;
+        this.prefix = propertyLookUp.prefix;
+
+        // don't copy, share the properties until someone wants to change them
+        this.layers = propertyLookUp.layers;
+        this.merged = propertyLookUp.getProperties();
+        this.shared = true;
+        if (!propertyLookUp.shared)
+        {
+            propertyLookUp.shared = true;
+        }
+
+        // same properties, same user, test, and site, so the resolution is the same
+        this.resolved = propertyLookUp.resolved();
+    }
+
     /**
      * Constructor that has two contexts to lookup data
      *
@@ -84,7 +148,14 @@ public class LTProperties
         this.siteId = propertyLookUp.siteId;
         this.prefix = Optional.of(prefix);
 
-        this.properties.putAll(propertyLookUp.properties);
+        // don't copy, share the properties until someone wants to change them
+        this.layers = propertyLookUp.layers;
+        this.merged = propertyLookUp.getProperties();
+        this.shared = true;
+        propertyLookUp.shared = true;
+
+        // same properties, same user, test, and site, so the resolution is the same
+        this.resolved = propertyLookUp.resolved();
     }
 
     /**
@@ -97,12 +168,121 @@ public class LTProperties
     {
         if (properties.isPresent())
         {
-            this.properties.putAll(properties.get());
+            addProperties(PropertyTable.of(properties.get()));
+        }
+    }
+
+    /**
+     * Add a table of properties for lookup to the beginning of the lookup. The table is not
+     * copied.
+     *
+     * @param table
+     *            the new properties to read from
+     */
+    public void addProperties(final PropertyTable table)
+    {
+        if (shared)
+        {
+            // copy on write, others still see the old state, it is just a list of references
+            this.layers = new ArrayList<>(this.layers);
+            this.shared = false;
         }
+
+        this.layers.add(table);
+        this.merged = null;
+        this.resolved = null;
     }
 
     /**
-     * Get a property form stack, first hit wins
+     * Returns the raw properties without any resolution applied, all layers merged. They might be
+     * shared with other instances, so don't change them, use {@link #addProperties(Optional)}
+     * instead.
+     *
+     * @return the raw properties
+     */
+    public Properties getProperties()
+    {
+        Properties result = merged;
+        if (result == null)
+        {
+            result = new Properties();
+            for (final PropertyTable layer : layers)
+            {
+                layer.copyTo(result);
+            }
+            merged = result;
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the resolved properties and builds them if needed.
+     *
+     * @return the resolved properties
+     */
+    private Map<String, String> resolved()
+    {
+        Map<String, String> result = resolved;
+        if (result == null)
+        {
+            result = resolve();
+            resolved = result;
+        }
+
+        return result;
+    }
+
+    /**
+     * Resolves all properties once for our user, test, and site. Each property is stripped from
+     * all the prefixes {@link #getEffectiveKey(String)} knows about, processed from the most
+     * general to the most specific, so that the more specific one wins. Hence a later lookup is a
+     * single map access.
+     *
+     * @return a map of bare keys to their effective and substituted values
+     */
+    private Map<String, String> resolve()
+    {
+        final String siteKey = "site." + siteId + ".";
+
+        // the reverse order of getEffectiveKey
+        final String[] prefixes = {
+                        "",
+                        siteKey,
+                        shortTestClassName + ".",
+                        shortTestClassName + "." + siteKey,
+                        userName + ".",
+                        userName + "." + siteKey
+        };
+
+        final Properties properties = getProperties();
+        final Set<String> names = properties.stringPropertyNames();
+        final Map<String, String> effectiveKeys = new HashMap<>(2 * names.size() + 1);
+
+        for (final String prefix : prefixes)
+        {
+            for (final String name : names)
+            {
+                if (name.startsWith(prefix))
+                {
+                    effectiveKeys.put(name.substring(prefix.length()), name);
+                }
+            }
+        }
+
+        // now get the values and take care of ${} references
+        final Map<String, String> result = new HashMap<>(2 * effectiveKeys.size() + 1);
+        for (final Map.Entry<String, String> entry : effectiveKeys.entrySet())
+        {
+            final String value = properties.getProperty(entry.getValue());
+            result.put(entry.getKey(), PropertiesUtils.substituteVariables(value, properties));
+        }
+
+        return result;
+    }
+
+    /**
+     * Get a property from the resolved properties, a single lookup
      *
      * @param key
      *            the key to look up
@@ -110,15 +290,23 @@ public class LTProperties
      */
     private String lookUpProperty(final String key)
     {
-        final String effectiveKey = getEffectiveKey(key);
+        final Map<String, String> properties = resolved();
 
-        final String result = this.properties.getProperty(effectiveKey);
-        if (result != null)
-        {
-            return PropertiesUtils.substituteVariables(result, this.properties);
-        }
+        return prefix.isPresent() ? properties.get(prefix.get() + key) : properties.get(key);
+    }
 
-        return null;
+    /**
+     * Get a property for one of the getProperty(...) methods with a default value. These have
+     * always applied the prefix twice, so prefixed instances don't find anything and return the
+     * default. Kept that way for now, the lookup is a single map access nevertheless.
+     *
+     * @param key
+     *            the key to look up
+     * @return the property value or null if it does not exist
+     */
+    private String lookUpPropertyWithDefault(final String key)
+    {
+        return lookUpProperty(prefix.orElse("") + key);
     }
 
     /**
@@ -144,6 +332,8 @@ public class LTProperties
      */
     private String getEffectiveKey(final String originalKey, final String siteId)
     {
+        final Properties properties = getProperties();
+
         String key = originalKey;
 
         // 0. see if we have any prefix to use when we have enum properties such as a list
@@ -153,14 +343,14 @@ public class LTProperties
 
         // 1. TBrowse_US.site.<site>.<property>
         final String userNameAndSiteKey = userName + "." + siteKey;
-        if (this.properties.containsKey(userNameAndSiteKey))
+        if (properties.containsKey(userNameAndSiteKey))
         {
             return userNameAndSiteKey;
         }
 
         // 2. TBrowse_US.<property>
         final String userNameAndKey = userName + "." + key;
-        if (this.properties.containsKey(userNameAndKey))
+        if (properties.containsKey(userNameAndKey))
         {
             return userNameAndKey;
         }
@@ -168,21 +358,21 @@ public class LTProperties
         // 3. use the given site id and the bare key for a test case
         // e.g. TBrowse.site.<site>.<property> (matches all tests in context of <site>)
         final String classAndSiteKey = shortTestClassName + "." + siteKey;
-        if (this.properties.containsKey(classAndSiteKey))
+        if (properties.containsKey(classAndSiteKey))
         {
             return classAndSiteKey;
         }
 
         // 4. TBrowse.property
         final String shortClassNameQualifiedKey = shortTestClassName + "." + key;
-        if (this.properties.containsKey(shortClassNameQualifiedKey))
+        if (properties.containsKey(shortClassNameQualifiedKey))
         {
             return shortClassNameQualifiedKey;
         }
 
         // 5. use the given site id and the bare key
         // e.g. site.<site>.<property> (matches all tests in context of <site>)
-        if (this.properties.containsKey(siteKey))
+        if (properties.containsKey(siteKey))
         {
             return siteKey;
         }
@@ -231,9 +421,7 @@ public class LTProperties
      */
     public int getProperty(final String key, final int defaultValue)
     {
-        final String effectiveKey = getEffectiveKey(key);
-
-        final String value = lookUpProperty(effectiveKey);
+        final String value = lookUpPropertyWithDefault(key);
         if (value != null)
         {
             try
@@ -264,9 +452,7 @@ public class LTProperties
      */
     public String getProperty(final String key, final String defaultValue)
     {
-        final String effectiveKey = getEffectiveKey(key);
-
-        final String value = lookUpProperty(effectiveKey);
+        final String value = lookUpPropertyWithDefault(key);
         return value != null ? value : defaultValue;
     }
 
@@ -284,9 +470,7 @@ public class LTProperties
      */
     public boolean getProperty(final String key, final boolean defaultValue)
     {
-        final String effectiveKey = getEffectiveKey(key);
-
-        final String value = lookUpProperty(effectiveKey);
+        final String value = lookUpPropertyWithDefault(key);
         if (value != null)
         {
             return Boolean.valueOf(value);
@@ -333,7 +517,7 @@ public class LTProperties
     public Map<String, String> getPropertiesForKey(final String domain)
     {
         final String effectiveKey = getEffectiveKey(domain);
-        return PropertiesUtils.getPropertiesForKey(effectiveKey, properties);
+        return PropertiesUtils.getPropertiesForKey(effectiveKey, getProperties());
     }
 
     /**
@@ -342,6 +526,7 @@ public class LTProperties
     @Override
     public String toString()
     {
+        final Properties properties = getProperties();
         final List<String> all = properties.stringPropertyNames().stream().map(k -> k + " = " + properties.getProperty(k)).sorted().collect(Collectors.toList());
 
         final StringBuilder sb = new StringBuilder(1024);
@@ -353,4 +538,158 @@ public class LTProperties
 
         return sb.toString();
     }
+
+    /**
+     * What the public properties field used to be, a view on the merged layers that adds a layer
+     * for every change
+     */
+    @SuppressWarnings("serial")
+    private class PropertiesView extends Properties
+    {
+        @Override
+        public String getProperty(final String key)
+        {
+            return getProperties().getProperty(key);
+        }
+
+        @Override
+        public String getProperty(final String key, final String defaultValue)
+        {
+            return getProperties().getProperty(key, defaultValue);
+        }
+
+        @Override
+        public Object get(final Object key)
+        {
+            return getProperties().get(key);
+        }
+
+        @Override
+        public Object getOrDefault(final Object key, final Object defaultValue)
+        {
+            return getProperties().getOrDefault(key, defaultValue);
+        }
+
+        @Override
+        public boolean containsKey(final Object key)
+        {
+            return getProperties().containsKey(key);
+        }
+
+        @Override
+        public boolean containsValue(final Object value)
+        {
+            return getProperties().containsValue(value);
+        }
+
+        @Override
+        public boolean contains(final Object value)
+        {
+            return getProperties().contains(value);
+        }
+
+        @Override
+        public int size()
+        {
+            return getProperties().size();
+        }
+
+        @Override
+        public boolean isEmpty()
+        {
+            return getProperties().isEmpty();
+        }
+
+        @Override
+        public Enumeration<Object> keys()
+        {
+            return getProperties().keys();
+        }
+
+        @Override
+        public Enumeration<Object> elements()
+        {
+            return getProperties().elements();
+        }
+
+        @Override
+        public Enumeration<?> propertyNames()
+        {
+            return getProperties().propertyNames();
+        }
+
+        @Override
+        public Set<String> stringPropertyNames()
+        {
+            return getProperties().stringPropertyNames();
+        }
+
+        @Override
+        public Set<Object> keySet()
+        {
+            return Collections.unmodifiableSet(getProperties().keySet());
+        }
+
+        @Override
+        public Collection<Object> values()
+        {
+            return Collections.unmodifiableCollection(getProperties().values());
+        }
+
+        @Override
+        public Set<Map.Entry<Object, Object>> entrySet()
+        {
+            return Collections.unmodifiableSet(getProperties().entrySet());
+        }
+
+        @Override
+        public void forEach(final BiConsumer<? super Object, ? super Object> action)
+        {
+            getProperties().forEach(action);
+        }
+
+        @Override
+        public Object setProperty(final String key, final String value)
+        {
+            return put(key, value);
+        }
+
+        @Override
+        public Object put(final Object key, final Object value)
+        {
+            final Object previous = get(key);
+
+            final Properties added = new Properties();
+            added.put(key, value);
+            addProperties(PropertyTable.of(added));
+
+            return previous;
+        }
+
+        @Override
+        public void putAll(final Map<?, ?> map)
+        {
+            final Properties added = new Properties();
+            added.putAll(map);
+            addProperties(PropertyTable.of(added));
+        }
+
+        @Override
+        public Object remove(final Object key)
+        {
+            throw new UnsupportedOperationException("Properties can only be added");
+        }
+
+        @Override
+        public void clear()
+        {
+            throw new UnsupportedOperationException("Properties can only be added");
+        }
+
+        @Override
+        public String toString()
+        {
+            return getProperties().toString();
+        }
+    }
 }
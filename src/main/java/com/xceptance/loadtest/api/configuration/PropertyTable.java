@@ -0,0 +1,96 @@
+package com.xceptance.loadtest.api.configuration;
+
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * An immutable and compact table of properties, just two arrays. Once built, it can be shared by
+ * everyone without copying, such as the properties of a YAML file that all configurations of a site
+ * are built from. It is a layer of {@link LTProperties}, which merges the layers for lookups.
+ *
+ * @author agent
+ */
+public class PropertyTable
+{
+    /**
+     * An empty table
+     */
+    public static final PropertyTable EMPTY = new PropertyTable(new String[0], new String[0]);
+
+    /**
+     * The keys
+     */
+    private final String[] keys;
+
+    /**
+     * The values in the order of the keys
+     */
+    private final String[] values;
+
+    private PropertyTable(final String[] keys, final String[] values)
+    {
+        this.keys = keys;
+        this.values = values;
+    }
+
+    /**
+     * Build a table from a map of keys and values, such as the ones of a YAML file
+     *
+     * @param map
+     *            the data, will not be referenced later
+     * @return the table
+     */
+    public static PropertyTable of(final Map<String, String> map)
+    {
+        final String[] keys = new String[map.size()];
+        final String[] values = new String[keys.length];
+
+        int i = 0;
+        for (final Map.Entry<String, String> entry : map.entrySet())
+        {
+            // the same keys show up in all site files, keep them once
+            keys[i] = entry.getKey().intern();
+            values[i++] = entry.getValue();
+        }
+
+        return new PropertyTable(keys, values);
+    }
+
+    /**
+     * Build a table from properties, only string keys and values are taken
+     *
+     * @param properties
+     *            the properties, will not be referenced later
+     * @return the table
+     */
+    public static PropertyTable of(final Properties properties)
+    {
+        final Set<String> names = properties.stringPropertyNames();
+        final String[] keys = new String[names.size()];
+        final String[] values = new String[keys.length];
+
+        int i = 0;
+        for (final String key : names)
+        {
+            keys[i] = key;
+            values[i++] = properties.getProperty(key);
+        }
+
+        return new PropertyTable(keys, values);
+    }
+
+    /**
+     * Adds all our properties to the given properties, ours win
+     *
+     * @param properties
+     *            the properties to add to
+     */
+    public void copyTo(final Properties properties)
+    {
+        for (int i = 0; i < keys.length; i++)
+        {
+            properties.setProperty(keys[i], values[i]);
+        }
+    }
+}
@@ -8,7 +8,7 @@ import java.util.stream.Collectors;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.http.util.Args;
 
-import com.xceptance.xlt.api.util.XltRandom;
+import com.xceptance.loadtest.api.util.AliasTable;
 
 /**
  * A weighted list to use a bucket like configuration
@@ -25,7 +25,12 @@ public class WeightedList<T>
      */
     private final List<Pair<T, Integer>> weightedElements;
     private final List<T> unweightedElements;
-    private int overallWeight = 0;
+
+    /**
+     * The sampling table for the current elements, built on the first random access and dropped
+     * when elements are added
+     */
+    private volatile AliasTable aliasTable;
 
     public WeightedList()
     {
@@ -54,7 +59,7 @@ public class WeightedList<T>
         Args.notNegative(weight, "The weight");
 
         weightedElements.add(Pair.of(element, weight));
-        overallWeight += weight;
+        aliasTable = null;
 
         return this;
     }
@@ -70,7 +75,7 @@ public class WeightedList<T>
         Args.notNull(weightedElement, "The weighted element");
 
         weightedElements.add(weightedElement);
-        overallWeight += weightedElement.getRight();
+        aliasTable = null;
 
         return this;
     }
@@ -131,28 +136,39 @@ public class WeightedList<T>
     }
 
     /**
-     * Get a random element, according to their weight.
+     * Get a random element, according to their weight. This is a constant time operation
+     * regardless of the size of the list.
      *
-     * @return random element
+     * @return random element or null if there is nothing to pick
      */
     public T getRandom()
     {
-        int i = XltRandom.nextInt(overallWeight);
+        final int index = aliasTable().next();
 
-        for (final Pair<T, Integer> e : weightedElements)
+        return index < 0 ? null : weightedElements.get(index).getLeft();
+    }
+
+    /**
+     * Returns the sampling table and builds it if needed
+     *
+     * @return the alias table for the current elements
+     */
+    private AliasTable aliasTable()
+    {
+        AliasTable table = aliasTable;
+        if (table == null)
         {
-            final int currentWeight = e.getRight();
-            if (i < currentWeight)
+            final int[] weights = new int[weightedElements.size()];
+            for (int i = 0; i < weights.length; i++)
             {
-                return e.getLeft();
-            }
-            else
-            {
-                i -= currentWeight;
+                weights[i] = weightedElements.get(i).getRight();
             }
+
+            table = new AliasTable(weights);
+            aliasTable = table;
         }
 
-        return null;
+        return table;
     }
 
     /**
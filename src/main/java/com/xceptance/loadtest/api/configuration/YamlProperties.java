@@ -7,28 +7,96 @@ import java.io.Reader;
 import java.nio.file.Files;
 import java.text.MessageFormat;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
 
+import org.junit.Assert;
+import org.yaml.snakeyaml.LoaderOptions;
 import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.Constructor;
+import org.yaml.snakeyaml.error.YAMLException;
+import org.yaml.snakeyaml.events.AliasEvent;
+import org.yaml.snakeyaml.events.CollectionStartEvent;
+import org.yaml.snakeyaml.events.Event;
+import org.yaml.snakeyaml.events.NodeEvent;
+import org.yaml.snakeyaml.events.ScalarEvent;
+import org.yaml.snakeyaml.nodes.NodeId;
+import org.yaml.snakeyaml.nodes.ScalarNode;
+import org.yaml.snakeyaml.nodes.Tag;
+import org.yaml.snakeyaml.resolver.Resolver;
 
-import com.xceptance.xlt.api.util.XltLogger;
+import com.xceptance.loadtest.api.util.Log;
 
 /**
- * Container for YAML based properties.
+ * Turns YAML into flat properties such as <code>a.b.0.c = value</code>. We don't load the YAML
+ * into maps and lists first, we follow the events of the parser and build the keys as we go.
+ * Values are the same as if SnakeYAML would have loaded them, so <code>yes</code> becomes
+ * <code>true</code> and <code>0x10</code> becomes <code>16</code>. Anchors, aliases, and merge keys
+ * are supported. As with SnakeYAML, a key of the mapping replaces the whole value of the same key
+ * of a merged mapping, and of several merged mappings the first one wins.
+ * <p>
+ * Outside of load tests, every file is also loaded by SnakeYAML and flattened the way we did
+ * before, and the test fails if the result differs, see {@link #verify(File, PropertyTable)}.
  *
  * @author Rene Schwietzke
  *
  */
 public class YamlProperties
 {
+    /**
+     * Integers that SnakeYAML would not change when loading them
+     */
+    private static final Pattern CANONICAL_INT = Pattern.compile("0|-?[1-9][0-9]*");
+
     /**
      * Our properties that will hit the outside world later
      */
-    private final Properties properties = new Properties();
+    private final Map<String, String> properties = new HashMap<>();
+
+    /**
+     * The key of the current position
+     */
+    private final StringBuilder key = new StringBuilder(128);
+
+    /**
+     * The open mappings and sequences
+     */
+    private final Deque<Frame> frames = new ArrayDeque<>();
+
+    /**
+     * The events of all anchors seen so far to replay them for aliases
+     */
+    private final Map<String, List<Event>> anchors = new HashMap<>();
+
+    /**
+     * Anchors we are still recording
+     */
+    private final List<Recording> recordings = new ArrayList<>();
+
+    /**
+     * Tells us the type of a plain scalar
+     */
+    private final Resolver resolver = new Resolver();
+
+    /**
+     * For the rare values we have to convert, only when needed
+     */
+    private ScalarConstructor constructor;
+
+    /**
+     * Where the values of the merged mappings we are in go to, until we know what is left of them
+     */
+    private final Deque<Map<String, String>> merged = new ArrayDeque<>();
 
     /**
      * Don't publish the constructor
@@ -38,139 +106,326 @@ public class YamlProperties
     }
 
     /**
-     * Build us a property key from the current state on the stack
+     * Handles an event from the parser
      *
-     * @param state
-     *            the stack
-     * @return a property key
+     * @param event
+     *            the event
      */
-    private String buildKey(final Deque<String> state)
+    private void feed(final Event event)
     {
-        final Iterator<String> i = state.descendingIterator();
+        // record for the open anchors
+        for (final Iterator<Recording> i = recordings.iterator(); i.hasNext();)
+        {
+            final Recording recording = i.next();
+            if (recording.record(event))
+            {
+                anchors.put(recording.anchor, recording.events);
+                i.remove();
+            }
+        }
 
-        final StringBuilder sb = new StringBuilder(64);
-        while (i.hasNext())
+        // start recording if this node is an anchor
+        if (event instanceof NodeEvent && !(event instanceof AliasEvent) && ((NodeEvent) event).getAnchor() != null)
         {
-            if (sb.length() > 0)
+            final Recording recording = new Recording(((NodeEvent) event).getAnchor());
+            if (recording.record(event))
             {
-                sb.append('.');
+                anchors.put(recording.anchor, recording.events);
+            }
+            else
+            {
+                recordings.add(recording);
             }
-            sb.append(i.next());
         }
 
-        return sb.toString();
+        handle(event);
     }
 
     /**
-     * Handle all remaining, hopefully primitive types
+     * Processes an event, either from the parser or from a replay
      *
-     * @param entry
-     *            the entry
-     * @param state
-     *            the current staate of the stack
+     * @param event
+     *            the event
      */
-    private void handleTypes(final Object entry, final Deque<String> state)
+    private void handle(final Event event)
     {
-        properties.setProperty(buildKey(state), entry == null ? "" : entry.toString());
+        switch (event.getEventId())
+        {
+            case Alias:
+                final List<Event> events = anchors.get(((AliasEvent) event).getAnchor());
+                if (events == null)
+                {
+                    throw new YAMLException("Found undefined alias " + ((AliasEvent) event).getAnchor());
+                }
+                for (final Event e : events)
+                {
+                    handle(e);
+                }
+                break;
+
+            case Scalar:
+                scalar((ScalarEvent) event);
+                break;
+
+            case MappingStart:
+            case SequenceStart:
+                final Frame parent = frames.peek();
+                final boolean merge = beginValue();
+                final Frame frame = new Frame(event.getEventId() == Event.ID.MappingStart, key.length(), merge);
+                if (merge)
+                {
+                    // merged into the mapping of the merge key, a list of mappings is in between
+                    frame.target = parent.mapping ? parent : parent.target;
+                    if (frame.mapping)
+                    {
+                        frame.values = new LinkedHashMap<>();
+                        frame.target.sources.add(frame.values);
+                        merged.push(frame.values);
+                    }
+                }
+                frames.push(frame);
+                break;
+
+            case MappingEnd:
+            case SequenceEnd:
+                final Frame done = frames.pop();
+                if (done.values != null)
+                {
+                    // our own merges are part of what we are merged with
+                    applyMerges(done, done.values);
+                    merged.pop();
+                }
+                else
+                {
+                    applyMerges(done, merged.isEmpty() ? properties : merged.peek());
+                }
+                endValue();
+                break;
+
+            default:
+                // stream and document boundaries
+                break;
+        }
     }
 
     /**
-     * Handle lists
+     * Handles a scalar, either a key of a mapping or a value
      *
-     * @param list
-     *            the list to deal with
-     * @param state
-     *            the current state
+     * @param event
+     *            the scalar
      */
-    @SuppressWarnings("unchecked")
-    private void list(final List<Object> list, final Deque<String> state)
+    private void scalar(final ScalarEvent event)
     {
-        for (int i = 0; i < list.size(); i++)
+        final Frame parent = frames.peek();
+        if (parent == null)
         {
-            final Object entry = list.get(i);
-            state.push(String.valueOf(i));
+            // a document that is just a value, nothing we can name
+            return;
+        }
 
-            if (entry instanceof Map)
-            {
-                map((Map<String, Object>) entry, state);
-            }
-            else if (entry instanceof List)
+        if (parent.mapping && parent.expectKey)
+        {
+            parent.expectKey = false;
+            if (event.isPlain() && "<<".equals(event.getValue()))
             {
-                list((List<Object>) entry, state);
+                // the value is merged into this mapping, no key of its own
+                key.setLength(parent.base);
+                parent.mergeNext = true;
             }
             else
             {
-                handleTypes(entry, state);
+                segment(parent.base, event.getValue());
+                parent.keys.add(event.getValue());
             }
+            return;
+        }
 
-            state.pop();
+        // a scalar can't be merged, that is not valid YAML, ignore it
+        if (!beginValue())
+        {
+            put(key.toString(), value(event));
         }
+        endValue();
     }
 
     /**
-     * Deal with maps
+     * Sets up the key for the next value
      *
-     * @param map
-     *            the map of data
-     * @param state
-     *            the current state
+     * @return true if the value is to be merged
      */
-    @SuppressWarnings("unchecked")
-    private void map(final Map<String, Object> map, final Deque<String> state)
+    private boolean beginValue()
     {
-        // is there anything to map?
-        if (map == null)
+        final Frame parent = frames.peek();
+        if (parent == null)
+        {
+            return false;
+        }
+
+        if (parent.mapping)
+        {
+            // the key is set already
+            return parent.mergeNext;
+        }
+
+        if (parent.merge)
+        {
+            // a list of mappings to merge, these don't get an index
+            key.setLength(parent.base);
+            return true;
+        }
+
+        segment(parent.base, String.valueOf(parent.index));
+        return false;
+    }
+
+    /**
+     * Done with a value
+     */
+    private void endValue()
+    {
+        final Frame parent = frames.peek();
+        if (parent == null)
         {
             return;
         }
 
-        for (final String key : map.keySet())
+        if (parent.mapping)
+        {
+            parent.expectKey = true;
+            parent.mergeNext = false;
+        }
+        else
         {
-            state.push(key);
+            parent.index++;
+        }
+    }
 
-            final Object value = map.get(key);
+    /**
+     * Puts a part of the key at the given position
+     *
+     * @param base
+     *            the length of the key of the parent
+     * @param segment
+     *            the part to add
+     */
+    private void segment(final int base, final String segment)
+    {
+        key.setLength(base);
+        if (base > 0)
+        {
+            key.append('.');
+        }
+        key.append(segment);
+    }
 
-            XltLogger.runTimeLogger.info(MessageFormat.format("Processing: {1} = {0}", value, state));
+    /**
+     * Stores a property, values of a merged mapping are held back until we know whether they are
+     * overridden
+     *
+     * @param key
+     *            the key
+     * @param value
+     *            the value
+     */
+    private void put(final String key, final String value)
+    {
+        Log.debugWhenDev("Processing: {0} = {1}", key, value);
 
-            if (value instanceof Map)
-            {
-                map((Map<String, Object>) value, state);
-            }
-            else if (value instanceof List)
-            {
-                list((List<Object>) value, state);
-            }
-            else
+        (merged.isEmpty() ? properties : merged.peek()).put(key, value);
+    }
+
+    /**
+     * Adds what is left of the mappings merged into a mapping once it is complete. A key of the
+     * mapping itself wins over the merged ones, and the first merged mapping having a key wins over
+     * the later ones, always with all that is below this key.
+     *
+     * @param frame
+     *            the complete mapping
+     * @param to
+     *            where the values go
+     */
+    private void applyMerges(final Frame frame, final Map<String, String> to)
+    {
+        if (frame.sources.isEmpty())
+        {
+            return;
+        }
+
+        final int start = frame.base > 0 ? frame.base + 1 : 0;
+        final Set<String> taken = new HashSet<>(frame.keys);
+
+        for (final Map<String, String> source : frame.sources)
+        {
+            final Set<String> mine = new HashSet<>();
+            for (final Map.Entry<String, String> entry : source.entrySet())
             {
-                handleTypes(value, state);
-            }
+                // the key of the merged mapping this value is part of
+                final String key = entry.getKey();
+                final int end = key.indexOf('.', start);
+                final String child = end < 0 ? key.substring(start) : key.substring(start, end);
 
-            state.pop();
+                if (!taken.contains(child))
+                {
+                    to.put(key, entry.getValue());
+                    mine.add(child);
+                }
+            }
+            taken.addAll(mine);
         }
     }
 
     /**
-     * Just do the magic
+     * Returns the value of a scalar as SnakeYAML would construct it
      *
-     * @param map
-     *            the map to convert
+     * @param event
+     *            the scalar
+     * @return the value as string
      */
-    private void yamlToJavaProperties(final Map<String, Object> map)
+    private String value(final ScalarEvent event)
     {
-        map(map, new ArrayDeque<String>());
+        final String value = event.getValue();
+
+        final Tag tag = event.getTag() != null && !"!".equals(event.getTag()) ?
+                        new Tag(event.getTag()) : resolver.resolve(NodeId.scalar, value, event.getImplicit().canOmitTagInPlainScalar());
+
+        // the common cases, which don't change
+        if (Tag.STR.equals(tag))
+        {
+            return value;
+        }
+        if (Tag.NULL.equals(tag))
+        {
+            return "";
+        }
+        if (Tag.INT.equals(tag) && CANONICAL_INT.matcher(value).matches())
+        {
+            return value;
+        }
+        if (Tag.BOOL.equals(tag) && ("true".equals(value) || "false".equals(value)))
+        {
+            return value;
+        }
+
+        // all the others, such as yes, 0x10, 1_000, or dates, let SnakeYAML do it
+        if (constructor == null)
+        {
+            constructor = new ScalarConstructor();
+        }
+        final Object result = constructor.construct(new ScalarNode(tag, value, event.getStartMark(), event.getEndMark(), event.getScalarStyle()));
+
+        return result == null ? "" : result.toString();
     }
 
     /**
-     * Parses yaml properties and turns them into regular Java properties. If the file does not
-     * exists, it returns null.
+     * Parses yaml properties and turns them into a table of flat properties.
      *
      * @param file
      *            a yaml file
-     * @return a Java properties file reader
+     * @return the properties
      * @throws IOException
      * @throws FileNotFoundException
      */
-    public static Properties build(final File file) throws FileNotFoundException, IOException
+    public static PropertyTable build(final File file) throws FileNotFoundException, IOException
     {
         try (final Reader reader = Files.newBufferedReader(file.toPath()))
         {
@@ -179,23 +434,267 @@ public class YamlProperties
     }
 
     /**
-     * Parses yaml properties and turns them into regular Java properties. If the file does not
-     * exists, it returns null.
+     * Parses yaml properties and turns them into a table of flat properties.
      *
      * @param reader
      *            a reader for a YAML file
-     * @return a Java properties file reader
+     * @return the properties
      * @throws IOException
      * @throws FileNotFoundException
      */
-    public static Properties build(final Reader reader) throws FileNotFoundException, IOException
+    public static PropertyTable build(final Reader reader) throws FileNotFoundException, IOException
     {
-        final Yaml yaml = new Yaml();
-
-        final Map<String, Object> map = yaml.load(reader);
         final YamlProperties yamlProperties = new YamlProperties();
-        yamlProperties.yamlToJavaProperties(map);
+        for (final Event event : new Yaml().parse(reader))
+        {
+            yamlProperties.feed(event);
+        }
+
+        return PropertyTable.of(yamlProperties.properties);
+    }
+
+    /**
+     * Checks that we got the same properties as if SnakeYAML loaded the file into maps and lists
+     * and these were flattened, which is what we did before. Files SnakeYAML cannot load into a
+     * map with string keys are not checked.
+     *
+     * @param file
+     *            the yaml file
+     * @param table
+     *            what we got from it
+     * @throws IOException
+     */
+    public static void verify(final File file, final PropertyTable table) throws IOException
+    {
+        // binary values become arrays, their string differs with every load
+        final Set<String> unstable = new HashSet<>();
+
+        final Properties expected;
+        try (final Reader reader = Files.newBufferedReader(file.toPath()))
+        {
+            expected = load(reader, unstable);
+        }
+        catch (final YAMLException | ClassCastException e)
+        {
+            Log.debugWhenDev("Not checking {0}, cannot be loaded as map: {1}", file, e.getMessage());
+            return;
+        }
+
+        final Properties actual = new Properties();
+        table.copyTo(actual);
+
+        final Set<String> keys = new TreeSet<>(expected.stringPropertyNames());
+        keys.addAll(actual.stringPropertyNames());
+        keys.removeAll(unstable);
+
+        final List<String> differences = new ArrayList<>();
+        for (final String key : keys)
+        {
+            final String e = expected.getProperty(key);
+            final String a = actual.getProperty(key);
+            if (e == null ? a != null : !e.equals(a))
+            {
+                differences.add(key + ": expected <" + e + "> but was <" + a + ">");
+            }
+        }
+
+        if (!differences.isEmpty())
+        {
+            Assert.fail(MessageFormat.format("YAML properties of {0} differ from a SnakeYAML load: {1}", file, differences));
+        }
+    }
+
+    /**
+     * Loads the YAML into maps and lists and flattens them, the reference for
+     * {@link #verify(File, PropertyTable)}
+     *
+     * @param reader
+     *            a reader for a YAML file
+     * @param unstable
+     *            where to put the keys of values that differ with every load
+     * @return the flat properties
+     */
+    private static Properties load(final Reader reader, final Set<String> unstable)
+    {
+        final Map<String, Object> map = new Yaml().load(reader);
+
+        final Properties properties = new Properties();
+        if (map != null)
+        {
+            for (final Map.Entry<String, Object> entry : map.entrySet())
+            {
+                flatten(entry.getValue(), entry.getKey(), properties, unstable);
+            }
+        }
+
+        return properties;
+    }
+
+    /**
+     * Flattens a loaded value
+     *
+     * @param value
+     *            a map, a list, or a scalar
+     * @param key
+     *            the key of the value
+     * @param properties
+     *            where to put the flat properties
+     * @param unstable
+     *            where to put the keys of values that differ with every load
+     */
+    @SuppressWarnings("unchecked")
+    private static void flatten(final Object value, final String key, final Properties properties, final Set<String> unstable)
+    {
+        final String prefix = key.isEmpty() ? "" : key + ".";
+
+        if (value instanceof Map)
+        {
+            for (final Map.Entry<String, Object> entry : ((Map<String, Object>) value).entrySet())
+            {
+                flatten(entry.getValue(), prefix + entry.getKey(), properties, unstable);
+            }
+        }
+        else if (value instanceof List)
+        {
+            final List<Object> list = (List<Object>) value;
+            for (int i = 0; i < list.size(); i++)
+            {
+                flatten(list.get(i), prefix + i, properties, unstable);
+            }
+        }
+        else
+        {
+            if (value != null && value.getClass().isArray())
+            {
+                unstable.add(key);
+            }
+            properties.setProperty(key, value == null ? "" : value.toString());
+        }
+    }
+
+    /**
+     * Constructs single scalars the way a SnakeYAML load does
+     */
+    private static class ScalarConstructor extends Constructor
+    {
+        private ScalarConstructor()
+        {
+            super(new LoaderOptions());
+        }
+
+        /**
+         * Constructs the value of a scalar
+         *
+         * @param node
+         *            the scalar with its resolved tag
+         * @return the value
+         */
+        private Object construct(final ScalarNode node)
+        {
+            return constructObject(node);
+        }
+    }
+
+    /**
+     * An open mapping or sequence
+     */
+    private static class Frame
+    {
+        /**
+         * Mapping or sequence
+         */
+        private final boolean mapping;
+
+        /**
+         * The length of the key of this node
+         */
+        private final int base;
+
+        /**
+         * Is this the value of a merge key
+         */
+        private final boolean merge;
+
+        /**
+         * The next index of a sequence
+         */
+        private int index;
 
-        return yamlProperties.properties;
+        /**
+         * Is the next scalar of a mapping a key
+         */
+        private boolean expectKey = true;
+
+        /**
+         * Is the next value of a mapping the one of a merge key
+         */
+        private boolean mergeNext;
+
+        /**
+         * The keys of a mapping, these are not taken from merged mappings
+         */
+        private final Set<String> keys = new HashSet<>();
+
+        /**
+         * The values of the mappings merged into a mapping, in the order of the merge key
+         */
+        private final List<Map<String, String>> sources = new ArrayList<>(0);
+
+        /**
+         * The mapping we are merged into, if this is the value of a merge key
+         */
+        private Frame target;
+
+        /**
+         * The values of a merged mapping
+         */
+        private Map<String, String> values;
+
+        private Frame(final boolean mapping, final int base, final boolean merge)
+        {
+            this.mapping = mapping;
+            this.base = base;
+            this.merge = merge;
+        }
+    }
+
+    /**
+     * The events of an anchor while we read them
+     */
+    private static class Recording
+    {
+        private final String anchor;
+
+        private final List<Event> events = new ArrayList<>();
+
+        private int depth;
+
+        private Recording(final String anchor)
+        {
+            this.anchor = anchor;
+        }
+
+        /**
+         * Adds an event
+         *
+         * @param event
+         *            the event
+         * @return true if the anchored node is complete
+         */
+        private boolean record(final Event event)
+        {
+            events.add(event);
+
+            if (event instanceof CollectionStartEvent)
+            {
+                depth++;
+            }
+            else if (event.is(Event.ID.MappingEnd) || event.is(Event.ID.SequenceEnd))
+            {
+                depth--;
+            }
+
+            return depth == 0;
+        }
     }
 }
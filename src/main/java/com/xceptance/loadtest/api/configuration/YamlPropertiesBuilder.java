@@ -4,13 +4,13 @@ import java.io.File;
 import java.io.IOException;
 import java.text.MessageFormat;
 import java.util.Optional;
-import java.util.Properties;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.junit.Assert;
 
 import com.xceptance.loadtest.api.data.DataFileProvider;
 import com.xceptance.loadtest.api.data.Site;
+import com.xceptance.loadtest.api.util.Context;
 import com.xceptance.loadtest.api.util.Log;
 import com.xceptance.xlt.api.util.XltLogger;
 
@@ -24,7 +24,7 @@ import com.xceptance.xlt.api.util.XltLogger;
 public class YamlPropertiesBuilder
 {
     // our global cache
-    private final static ConcurrentHashMap<String, Optional<Properties>> propertiesCache = new ConcurrentHashMap<>();
+    private final static ConcurrentHashMap<String, Optional<PropertyTable>> propertiesCache = new ConcurrentHashMap<>();
 
     /**
      * Non-public constructor
@@ -40,7 +40,7 @@ public class YamlPropertiesBuilder
      *            the property file to load
      * @return the loaded properties
      */
-    private static Optional<Properties> loadFromFile(final Optional<File> file)
+    private static Optional<PropertyTable> loadFromFile(final Optional<File> file)
     {
         // do we have a file?
         if (file.isPresent() == false)
@@ -52,7 +52,14 @@ public class YamlPropertiesBuilder
         {
             Log.infoWhenDev("Loading custom YAML properties from {0}", file.get().toString());
 
-            final Properties properties = YamlProperties.build(file.get());
+            final PropertyTable properties = YamlProperties.build(file.get());
+
+            // outside of load tests, make sure we read the same as a plain SnakeYAML load
+            if (properties != null && Context.isLoadTest == false)
+            {
+                YamlProperties.verify(file.get(), properties);
+            }
+
             if (properties == null)
             {
                 Log.warnWhenDev("Cannot load custom YAML properties from {0}", file.get().toString());
@@ -83,12 +90,12 @@ public class YamlPropertiesBuilder
      * @param fileName
      *            the file name with path relative to the data directory
      */
-    public static Optional<Properties> build(final String key, final String fileName)
+    public static Optional<PropertyTable> build(final String key, final String fileName)
     {
         // check whether or not we already now this thingy
         return propertiesCache.computeIfAbsent(key + File.separatorChar + fileName, k ->
         {
-            final Optional<Properties> properties = loadFromFile(DataFileProvider.dataFile(fileName));
+            final Optional<PropertyTable> properties = loadFromFile(DataFileProvider.dataFile(fileName));
             if (properties.isPresent())
             {
                 return properties;
@@ -103,7 +110,7 @@ public class YamlPropertiesBuilder
         });
     }
 
-    public static Optional<Properties> buildWithFallback(final Site site, final String fileName)
+    public static Optional<PropertyTable> buildWithFallback(final Site site, final String fileName)
     {
         // key, this is not a file system location!!!
         final String key = site.id + File.separatorChar + site.region + File.separatorChar + site.locale + File.separatorChar + fileName;
@@ -112,7 +119,7 @@ public class YamlPropertiesBuilder
         return propertiesCache.computeIfAbsent(key, k ->
         {
             final Optional<File> file = DataFileProvider.dataFileBySite(site, fileName);
-            final Optional<Properties> result = loadFromFile(file);
+            final Optional<PropertyTable> result = loadFromFile(file);
 
             if (!result.isPresent())
             {
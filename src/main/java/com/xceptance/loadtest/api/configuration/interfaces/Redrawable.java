@@ -0,0 +1,21 @@
+package com.xceptance.loadtest.api.configuration.interfaces;
+
+/**
+ * Configuration values that carry a random but fixed value per test case execution implement
+ * this interface. It permits us to get a fresh value without parsing the property again.
+ *
+ * @param <T>
+ *            the type of the configuration value
+ *
+ * @author agent
+ */
+public interface Redrawable<T>
+{
+    /**
+     * Returns a copy of this object that shares all parsed data but has a newly determined random
+     * value. Immutable objects stay immutable.
+     *
+     * @return a copy with a new random value
+     */
+    public T redraw();
+}
@@ -0,0 +1,354 @@
+package com.xceptance.loadtest.api.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.text.MessageFormat;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.junit.Assert;
+
+import com.xceptance.xlt.api.engine.Session;
+import com.xceptance.xlt.api.engine.SessionShutdownListener;
+import com.xceptance.xlt.api.util.XltRandom;
+
+/**
+ * A pool of exclusive accounts per accounts file. Accounts are handed out as leases, a lease ends
+ * when the account is released, when the transaction of the holder ends, or when it expires.
+ * Hence accounts don't leak when a test forgets to release them or dies in the middle.
+ * <p>
+ * The free accounts are spread over a few queues. A user starts looking at a random one and an
+ * account comes back to a random one, so the accounts are handed out in random order as XLT's
+ * ExclusiveDataProvider does, without a lock everyone has to get by.
+ *
+ * @author agent
+ */
+public class AccountPool
+{
+    /**
+     * Name of the custom timer that reports how long we waited for an account
+     */
+    public static final String WAIT_TIMER = "account.pool.wait";
+
+    /**
+     * Name of the custom timer that reports that we did not get an account at all
+     */
+    public static final String STARVATION_TIMER = "account.pool.starvation";
+
+    /**
+     * The file name of the accounts in the data hierarchy
+     */
+    private static final String FILENAME = "accounts.csv";
+
+    /**
+     * Shortest and longest pause when there is no free account
+     */
+    private static final long MIN_BACKOFF = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long MAX_BACKOFF = TimeUnit.MILLISECONDS.toNanos(50);
+
+    /**
+     * The number of queues of free accounts
+     */
+    private static final int STRIPES = 8;
+
+    /**
+     * No lease to expire, far enough in the future to be compared with nano time
+     */
+    private static final long NEVER = Long.MAX_VALUE >> 1;
+
+    /**
+     * The pools by accounts file relative to the data directory, sites that use the same file
+     * share the pool
+     */
+    private static final ConcurrentHashMap<String, AccountPool> POOLS = new ConcurrentHashMap<>();
+
+    /**
+     * The accounts nobody holds
+     */
+    @SuppressWarnings("unchecked")
+    private final ConcurrentLinkedQueue<Account>[] available = new ConcurrentLinkedQueue[STRIPES];
+
+    /**
+     * The accounts somebody holds
+     */
+    private final ConcurrentHashMap<Account, Lease> leased = new ConcurrentHashMap<>();
+
+    /**
+     * When the next lease expires at the earliest, nano time
+     */
+    private final AtomicLong nextExpiry = new AtomicLong(System.nanoTime() + NEVER);
+
+    /**
+     * Only one thread looks for expired leases, the others don't wait for it
+     */
+    private final ReentrantLock reclaiming = new ReentrantLock();
+
+    /**
+     * Create the pool from an accounts file
+     *
+     * @param file
+     *            the accounts file
+     */
+    private AccountPool(final File file)
+    {
+        final List<Account> accounts;
+        try
+        {
+            accounts = Account.ACCOUNT_PARSER.parse(Files.readAllLines(file.toPath()));
+        }
+        catch (final IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+
+        // the order of the file does not matter, the order of the queues does
+        Collections.shuffle(accounts, ThreadLocalRandom.current());
+        for (int i = 0; i < STRIPES; i++)
+        {
+            available[i] = new ConcurrentLinkedQueue<>();
+        }
+        for (int i = 0; i < accounts.size(); i++)
+        {
+            available[i % STRIPES].offer(accounts.get(i));
+        }
+    }
+
+    /**
+     * Returns the pool for a site
+     *
+     * @param site
+     *            the site
+     * @return the pool of accounts of this site
+     */
+    public static AccountPool forSite(final Site site)
+    {
+        final Optional<String> path = DataFileProvider.dataFilePathBySite(site, FILENAME);
+        if (!path.isPresent())
+        {
+            Assert.fail(MessageFormat.format("File {0} not found for site {1}", FILENAME, site.getId()));
+        }
+
+        final AccountPool pool = POOLS.get(path.get());
+        if (pool != null)
+        {
+            return pool;
+        }
+
+        return POOLS.computeIfAbsent(path.get(), k -> new AccountPool(DataFileProvider.dataFileBySite(site, FILENAME).get()));
+    }
+
+    /**
+     * Lease a random account. If none is available, we wait for one and reclaim expired leases. The
+     * lease ends with the current transaction at the latest.
+     *
+     * @param leaseTimeout
+     *            how long the account is ours at most in ms
+     * @param waitTimeout
+     *            how long to wait for an account at most in ms
+     * @return the account
+     */
+    public Account acquire(final long leaseTimeout, final long waitTimeout)
+    {
+        final long start = System.nanoTime();
+        final long waitUntil = start + TimeUnit.MILLISECONDS.toNanos(waitTimeout);
+
+        // where we start to look, the random value of the user, so a rerun picks the same
+        final int first = XltRandom.nextInt(STRIPES);
+
+        long backoff = MIN_BACKOFF;
+        while (true)
+        {
+            final Account account = poll(first);
+            if (account != null)
+            {
+                final long expires = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(leaseTimeout);
+                final Lease lease = new Lease(account, Session.getCurrent(), expires);
+                leased.put(account, lease);
+                nextExpiry.accumulateAndGet(expires, (current, e) -> e - current < 0 ? e : current);
+                lease.session.addShutdownListener(lease);
+
+                CustomTimer.log(WAIT_TIMER, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+                return account;
+            }
+
+            // someone might have forgotten to give theirs back
+            final long now = System.nanoTime();
+            if (now - nextExpiry.get() >= 0 && reclaimExpired(now) > 0)
+            {
+                continue;
+            }
+
+            if (now - waitUntil >= 0)
+            {
+                CustomTimer.log(STARVATION_TIMER, TimeUnit.NANOSECONDS.toMillis(now - start), true);
+                Assert.fail(MessageFormat.format("No account available after waiting {0} ms, {1} accounts are leased", waitTimeout, leased.size()));
+            }
+
+            LockSupport.parkNanos(Math.min(backoff, waitUntil - now));
+            backoff = Math.min(backoff << 1, MAX_BACKOFF);
+        }
+    }
+
+    /**
+     * Takes an account from the queues, starting at the given one
+     *
+     * @param first
+     *            the queue to look at first
+     * @return the account or null if there is none
+     */
+    private Account poll(final int first)
+    {
+        for (int i = 0; i < STRIPES; i++)
+        {
+            final Account account = available[(first + i) % STRIPES].poll();
+            if (account != null)
+            {
+                return account;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns an account to the pool. Accounts we don't know or that have been reclaimed already
+     * are ignored, even when someone else holds them by now, and so is null, such as when a test
+     * did not get an account and releases it anyway.
+     *
+     * @param account
+     *            the account to release
+     */
+    public void release(final Account account)
+    {
+        if (account == null)
+        {
+            return;
+        }
+
+        final Lease lease = leased.get(account);
+        if (lease != null && lease.session == Session.getCurrent() && reclaim(lease))
+        {
+            lease.session.removeShutdownListener(lease);
+        }
+    }
+
+    /**
+     * Returns the account of a lease to the pool, if the lease is still the current one
+     *
+     * @param lease
+     *            the lease to end
+     * @return true if the account was returned
+     */
+    private boolean reclaim(final Lease lease)
+    {
+        if (leased.remove(lease.account, lease))
+        {
+            // not the random values of the user, that would depend on timing
+            available[ThreadLocalRandom.current().nextInt(STRIPES)].offer(lease.account);
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns all accounts of expired leases to the pool. We only get here when the earliest lease
+     * is due, so we don't look at all leases every time we wait.
+     *
+     * @param now
+     *            the current nano time
+     * @return the number of reclaimed accounts
+     */
+    private int reclaimExpired(final long now)
+    {
+        if (!reclaiming.tryLock())
+        {
+            // someone else is at it
+            return 0;
+        }
+
+        try
+        {
+            // new leases lower it again while we are at it
+            nextExpiry.set(now + NEVER);
+
+            int count = 0;
+            for (final Lease lease : leased.values())
+            {
+                if (now - lease.expires >= 0)
+                {
+                    if (reclaim(lease))
+                    {
+                        count++;
+                    }
+                }
+                else
+                {
+                    nextExpiry.accumulateAndGet(lease.expires, (current, e) -> e - current < 0 ? e : current);
+                }
+            }
+
+            return count;
+        }
+        finally
+        {
+            reclaiming.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of available accounts
+     *
+     * @return the number of accounts nobody holds
+     */
+    public int available()
+    {
+        int count = 0;
+        for (final ConcurrentLinkedQueue<Account> queue : available)
+        {
+            count += queue.size();
+        }
+
+        return count;
+    }
+
+    /**
+     * An account held by a session until a certain time
+     */
+    private class Lease implements SessionShutdownListener
+    {
+        private final Account account;
+
+        private final Session session;
+
+        private final long expires;
+
+        private Lease(final Account account, final Session session, final long expires)
+        {
+            this.account = account;
+            this.session = session;
+            this.expires = expires;
+        }
+
+        /**
+         * The transaction is over, we don't deregister here, because the session is busy calling
+         * us
+         */
+        @Override
+        public void shutdown()
+        {
+            reclaim(this);
+        }
+    }
+}
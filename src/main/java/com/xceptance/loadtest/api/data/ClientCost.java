@@ -0,0 +1,173 @@
+package com.xceptance.loadtest.api.data;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import com.xceptance.xlt.api.util.XltProperties;
+
+/**
+ * Measures what an action costs the agent: the CPU time and the bytes allocated by the current
+ * thread while the whole action runs. That is the test code, such as serializing, extracting, and
+ * validating, as well as the work of the HTTP client, such as building the request, TLS, and
+ * reading the response. Waiting for the server costs no CPU, so this is the client side only.
+ * Enabled by <code>general.clientCost = true</code>, reported as the custom values
+ * <code>&lt;timer name&gt;.cpu</code> in milliseconds and <code>&lt;timer name&gt;.alloc</code> in
+ * bytes, the timer name with the site id.
+ * <p>
+ * {@link com.xceptance.loadtest.api.util.SimpleRESTJSONAction} also reports the extraction and
+ * validation of the response on its own as <code>&lt;timer name&gt;.validate.cpu</code> and
+ * <code>&lt;timer name&gt;.validate.alloc</code>, that is the part the test code is in charge of.
+ * <p>
+ * Only the thread that runs the action is measured, requests fanned out to other threads and
+ * deferred validations are not part of it.
+ *
+ * @author agent
+ */
+public class ClientCost
+{
+    /**
+     * Does the user want it
+     */
+    private static final boolean ENABLED = XltProperties.getInstance().getProperty("general.clientCost", false);
+
+    /**
+     * The CPU time of threads
+     */
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    /**
+     * The allocations of threads, a HotSpot extension, null if we don't have it
+     */
+    private static final com.sun.management.ThreadMXBean ALLOCATIONS = THREADS instanceof com.sun.management.ThreadMXBean ? (com.sun.management.ThreadMXBean) THREADS : null;
+
+    /**
+     * Can we measure the CPU time
+     */
+    private static final boolean CPU = ENABLED && enableCpu();
+
+    /**
+     * Can we measure the allocations
+     */
+    private static final boolean ALLOC = ENABLED && enableAllocations();
+
+    /**
+     * Handed out when there is nothing to measure
+     */
+    private static final ClientCost DISABLED = new ClientCost(-1, -1);
+
+    /**
+     * CPU time at the start in ns, negative if unknown
+     */
+    private final long cpu;
+
+    /**
+     * Allocated bytes at the start, negative if unknown
+     */
+    private final long allocated;
+
+    /**
+     * Don't make it accessible from the outside
+     */
+    private ClientCost(final long cpu, final long allocated)
+    {
+        this.cpu = cpu;
+        this.allocated = allocated;
+    }
+
+    /**
+     * Switch on CPU time measurement if we can
+     */
+    private static boolean enableCpu()
+    {
+        try
+        {
+            if (THREADS.isCurrentThreadCpuTimeSupported())
+            {
+                if (!THREADS.isThreadCpuTimeEnabled())
+                {
+                    THREADS.setThreadCpuTimeEnabled(true);
+                }
+                return true;
+            }
+        }
+        catch (final UnsupportedOperationException | SecurityException e)
+        {
+            // we go without
+        }
+
+        return false;
+    }
+
+    /**
+     * Switch on allocation measurement if we can
+     */
+    private static boolean enableAllocations()
+    {
+        try
+        {
+            if (ALLOCATIONS != null && ALLOCATIONS.isThreadAllocatedMemorySupported())
+            {
+                if (!ALLOCATIONS.isThreadAllocatedMemoryEnabled())
+                {
+                    ALLOCATIONS.setThreadAllocatedMemoryEnabled(true);
+                }
+                return true;
+            }
+        }
+        catch (final UnsupportedOperationException | SecurityException e)
+        {
+            // we go without
+        }
+
+        return false;
+    }
+
+    /**
+     * Start measuring the current thread
+     *
+     * @return the running measurement
+     */
+    public static ClientCost start()
+    {
+        if (!ENABLED)
+        {
+            return DISABLED;
+        }
+
+        return new ClientCost(CPU ? THREADS.getCurrentThreadCpuTime() : -1, ALLOC ? ALLOCATIONS.getCurrentThreadAllocatedBytes() : -1);
+    }
+
+    /**
+     * Stop measuring and report what the current thread spent since the start. Must be called on
+     * the thread that started it.
+     *
+     * @param timerName
+     *            the site specific timer name of the action
+     */
+    public void stopAndLog(final String timerName)
+    {
+        if (this == DISABLED)
+        {
+            return;
+        }
+
+        // -1 if someone switched the measurement off meanwhile, so check both ends
+        if (cpu >= 0)
+        {
+            final long now = THREADS.getCurrentThreadCpuTime();
+            if (now >= 0)
+            {
+                CustomValues.log(timerName + ".cpu", (now - cpu) / 1_000_000d);
+            }
+        }
+
+        if (allocated >= 0)
+        {
+            final long now = ALLOCATIONS.getCurrentThreadAllocatedBytes();
+            if (now >= 0)
+            {
+                CustomValues.log(timerName + ".alloc", now - allocated);
+            }
+        }
+    }
+}
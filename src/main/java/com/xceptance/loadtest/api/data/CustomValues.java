@@ -0,0 +1,30 @@
+package com.xceptance.loadtest.api.data;
+
+import com.xceptance.xlt.api.engine.CustomValue;
+import com.xceptance.xlt.api.engine.GlobalClock;
+import com.xceptance.xlt.api.engine.Session;
+
+/**
+ * Logs custom values, the counterpart of {@link CustomTimer} for things that are not a runtime.
+ *
+ * @author agent
+ */
+public class CustomValues
+{
+    /**
+     * Log a custom value
+     *
+     * @param name
+     *            the name to log
+     * @param value
+     *            the value to report
+     */
+    public static void log(final String name, final double value)
+    {
+        final CustomValue data = new CustomValue(name);
+        data.setTime(GlobalClock.millis());
+        data.setValue(value);
+
+        Session.getCurrent().getDataManager().logDataRecord(data);
+    }
+}
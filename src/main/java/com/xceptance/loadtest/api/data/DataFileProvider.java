@@ -1,8 +1,18 @@
 package com.xceptance.loadtest.api.data;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
 import java.util.Optional;
-import java.util.regex.Pattern;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import com.xceptance.loadtest.api.util.Log;
 import com.xceptance.xlt.api.util.XltProperties;
@@ -17,6 +27,12 @@ import com.xceptance.xlt.common.XltConstants;
  */
 public class DataFileProvider
 {
+    /**
+     * All files of the data directory, scanned on first use, so that we don't have to ask the file
+     * system during the test
+     */
+    private static volatile DataDirectory dataDirectory;
+
     /**
      * Returns a file handle to a file in the hierarchy for later loading
      *
@@ -27,16 +43,62 @@ public class DataFileProvider
      * @return empty optional or the file to be used later
      */
     public static Optional<File> dataFileBySite(final Site site, final String fileName)
+    {
+        final Optional<DataFile> dataFile = resolve(site, fileName);
+        return dataFile.isPresent() ? Optional.of(dataFile.get().file) : Optional.empty();
+    }
+
+    /**
+     * Returns the file in the hierarchy from the cache or looks it up once
+     *
+     * @param site
+     *            the site
+     * @param fileName
+     *            the file name we are interested in
+     * @return empty optional or the file and its relative path
+     */
+    private static Optional<DataFile> resolve(final Site site, final String fileName)
+    {
+        // key, this is not a file system location
+        final String key = site.id + '\0' + site.region + '\0' + site.locale + '\0' + fileName;
+
+        // the results belong to the directory they were found in
+        final DataDirectory directory = dataDirectory();
+
+        final Optional<DataFile> dataFile = directory.resolved.get(key);
+        if (dataFile != null)
+        {
+            return dataFile;
+        }
+
+        final Optional<DataFile> newDataFile = lookUp(directory, site, fileName);
+        final Optional<DataFile> existingDataFile = directory.resolved.putIfAbsent(key, newDataFile);
+
+        return existingDataFile != null ? existingDataFile : newDataFile;
+    }
+
+    /**
+     * Walks the hierarchy for a file
+     *
+     * @param directory
+     *            the scanned data directory
+     * @param site
+     *            the site
+     * @param fileName
+     *            the file name we are interested in
+     * @return empty optional or the file and its relative path
+     */
+    private static Optional<DataFile> lookUp(final DataDirectory directory, final Site site, final String fileName)
     {
         // from the site first (e.g. UnitedStates)
-        final Optional<File> fromSite = dataFile("sites" + File.separatorChar + site.id + File.separatorChar + fileName);
+        final Optional<DataFile> fromSite = find(directory, "sites" + File.separatorChar + site.id + File.separatorChar + fileName);
         if (fromSite.isPresent())
         {
             return fromSite;
         }
 
         // if not found from default site,
-        final Optional<File> fromDefaultSite = dataFile("sites" + File.separatorChar + "default" + File.separatorChar + fileName);
+        final Optional<DataFile> fromDefaultSite = find(directory, "sites" + File.separatorChar + "default" + File.separatorChar + fileName);
         if (fromDefaultSite.isPresent())
         {
             return fromDefaultSite;
@@ -45,7 +107,7 @@ public class DataFileProvider
         // if not found from region,
         if (site.region != null)
         {
-            final Optional<File> fromRegion = dataFile("regions" + File.separatorChar + site.region + File.separatorChar + fileName);
+            final Optional<DataFile> fromRegion = find(directory, "regions" + File.separatorChar + site.region + File.separatorChar + fileName);
             if (fromRegion.isPresent())
             {
                 return fromRegion;
@@ -53,7 +115,7 @@ public class DataFileProvider
         }
 
         // if not found from default region,
-        final Optional<File> fromDefaultRegion = dataFile("regions" + File.separatorChar + "default" + File.separatorChar + fileName);
+        final Optional<DataFile> fromDefaultRegion = find(directory, "regions" + File.separatorChar + "default" + File.separatorChar + fileName);
         if (fromDefaultRegion.isPresent())
         {
             return fromDefaultRegion;
@@ -62,7 +124,7 @@ public class DataFileProvider
         // if not found from locale (e.g. en_US, as specified for the site)
         if (site.locale != null)
         {
-            final Optional<File> fromLocale = dataFile("languages" + File.separatorChar + site.locale + File.separatorChar + fileName);
+            final Optional<DataFile> fromLocale = find(directory, "languages" + File.separatorChar + site.locale + File.separatorChar + fileName);
             if (fromLocale.isPresent())
             {
                 return fromLocale;
@@ -73,7 +135,7 @@ public class DataFileProvider
         if (site.locale != null)
         {
             final String language = site.language();
-            final Optional<File> fromLanguage = dataFile("languages" + File.separatorChar + language + File.separatorChar + fileName);
+            final Optional<DataFile> fromLanguage = find(directory, "languages" + File.separatorChar + language + File.separatorChar + fileName);
             if (fromLanguage.isPresent())
             {
                 return fromLanguage;
@@ -81,7 +143,7 @@ public class DataFileProvider
         }
 
         // if not found from default language
-        final Optional<File> fromDefaultLanguage = dataFile("languages" + File.separatorChar + "default" + File.separatorChar + fileName);
+        final Optional<DataFile> fromDefaultLanguage = find(directory, "languages" + File.separatorChar + "default" + File.separatorChar + fileName);
         if (fromDefaultLanguage.isPresent())
         {
             return fromDefaultLanguage;
@@ -100,10 +162,29 @@ public class DataFileProvider
      */
     public static Optional<File> dataFile(final String fileName)
     {
-        final File file = new File(getDataDirectory(), fileName);
+        final Optional<DataFile> dataFile = find(dataDirectory(), fileName);
+        return dataFile.isPresent() ? Optional.of(dataFile.get().file) : Optional.empty();
+    }
+
+    /**
+     * Checks the scanned data directory for a file. What the scan does not know, such as
+     * directories, files created later, or paths outside of the data directory, we ask the file
+     * system for, as it was before there was a scan.
+     *
+     * @param directory
+     *            the scanned data directory
+     * @param fileName
+     *            the file in the data directory
+     * @return empty optional if file does not exists, the file and its relative path otherwise
+     */
+    private static Optional<DataFile> find(final DataDirectory directory, final String fileName)
+    {
+        final String relativePath = Paths.get(fileName).normalize().toString();
+        final File file = new File(directory.path, relativePath);
 
         Log.infoWhenDev("Looking up file in hierarchy: {0} ...", file.toString());
-        final Optional<File> result = file.exists() ? Optional.of(file) : Optional.empty();
+        final boolean exists = directory.files.contains(relativePath) || file.exists();
+        final Optional<DataFile> result = exists ? Optional.of(new DataFile(file, relativePath)) : Optional.empty();
         Log.infoWhenDev("...{0} was {1}", file.toString(), result.isPresent() ? "found." : "not found!");
 
         return result;
@@ -129,24 +210,128 @@ public class DataFileProvider
      */
     public static Optional<String> dataFilePathBySite(final Site site, final String fileName)
     {
-        // get path relative to program root
-        final Optional<File> file = dataFileBySite(site, fileName);
-        if (file.isPresent())
+        final Optional<DataFile> dataFile = resolve(site, fileName);
+        return dataFile.isPresent() ? Optional.of(dataFile.get().relativePath) : Optional.empty();
+    }
+
+    /**
+     * Returns the scanned data directory, scans it on first use and again when its location has
+     * been changed. The new scan replaces the old one as a whole, including the lookups done so
+     * far. When the scan failed, every call fails with the cause of it.
+     *
+     * @return the scanned data directory
+     */
+    private static DataDirectory dataDirectory()
+    {
+        final String path = getDataDirectory();
+
+        DataDirectory directory = dataDirectory;
+        if (directory == null || !directory.path.equals(path))
         {
-            final String normalizedDataDirectoryPath = new File(getDataDirectory()).getPath();
-            final String escapedNormalizedDirectoryPath = Pattern.quote(normalizedDataDirectoryPath);
-            final String dataFilePathWithoutDataDirectory = file.get().getPath().replaceFirst(escapedNormalizedDirectoryPath, "");
-            final String dataFilePathWithoutLeadingSlash = dataFilePathWithoutDataDirectory.substring(1);
+            synchronized (DataFileProvider.class)
+            {
+                directory = dataDirectory;
+                if (directory == null || !directory.path.equals(path))
+                {
+                    directory = new DataDirectory(path);
+                    dataDirectory = directory;
+                }
+            }
+        }
 
-            return Optional.of(dataFilePathWithoutLeadingSlash);
+        if (directory.failure != null)
+        {
+            throw new UncheckedIOException(directory.failure.getMessage(), directory.failure);
         }
 
-        // file not found
-        return Optional.empty();
+        return directory;
     }
 
     private static String getDataDirectory()
     {
         return XltProperties.getInstance().getProperty(XltConstants.XLT_PACKAGE_PATH + ".data.directory", "config" + File.separatorChar + "data");
     }
+
+    /**
+     * The relative paths of all files in the data directory and what we have looked up in it
+     */
+    private static class DataDirectory
+    {
+        /**
+         * The data directory as configured
+         */
+        private final String path;
+
+        /**
+         * All files, relative to the data directory
+         */
+        private final Set<String> files;
+
+        /**
+         * Why the scan failed, null if it did not
+         */
+        private final IOException failure;
+
+        /**
+         * The result of a hierarchy lookup per site id, region, locale, and file name
+         */
+        private final ConcurrentHashMap<String, Optional<DataFile>> resolved = new ConcurrentHashMap<>();
+
+        private DataDirectory(final String path)
+        {
+            this.path = path;
+
+            Set<String> files = Collections.emptySet();
+            IOException failure = null;
+
+            final Path root = Paths.get(path);
+            if (Files.isDirectory(root))
+            {
+                // data might be shared between suites by links
+                try (final Stream<Path> paths = Files.walk(root, FileVisitOption.FOLLOW_LINKS))
+                {
+                    files = Collections.unmodifiableSet(paths
+                                    .filter(Files::isRegularFile)
+                                    .map(p -> root.relativize(p).normalize().toString())
+                                    .collect(Collectors.toSet()));
+                }
+                catch (final IOException e)
+                {
+                    failure = new IOException("Unable to scan data directory " + path, e);
+                }
+                catch (final UncheckedIOException e)
+                {
+                    // such as a link loop while walking
+                    failure = new IOException("Unable to scan data directory " + path, e.getCause());
+                }
+            }
+
+            this.files = files;
+            this.failure = failure;
+
+            Log.infoWhenDev("Scanned data directory {0}, found {1} files", path, files.size());
+        }
+    }
+
+    /**
+     * A file found in the data directory
+     */
+    private static class DataFile
+    {
+        /**
+         * The file to load
+         */
+        private final File file;
+
+        /**
+         * The path without the data directory
+         */
+        private final String relativePath;
+
+        private DataFile(final File file, final String relativePath)
+        {
+            this.file = file;
+            this.relativePath = relativePath;
+        }
+    }
 }
@@ -2,13 +2,13 @@ package com.xceptance.loadtest.api.data;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.text.MessageFormat;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.StringUtils;
 import org.junit.Assert;
@@ -29,6 +29,11 @@ public class DataSupplier
      */
     private final static ConcurrentHashMap<String, List<String>> data = new ConcurrentHashMap<>(1);
 
+    /**
+     * The mapped files by their real path, several sites falling back to the same file share it
+     */
+    private final static ConcurrentHashMap<Path, List<String>> files = new ConcurrentHashMap<>(1);
+
     /**
      * Get us the source list for the data in the site context
      *
@@ -51,16 +56,19 @@ public class DataSupplier
             {
                 try
                 {
-                    return Files.readAllLines(file.get().toPath())
-                                    .stream()
-                                    .map(s -> s.trim())
-                                    .filter(s ->
-                                    {
-                                        return s.length() > 0 && !s.startsWith("#");
-                                    })
-                                    .collect(Collectors.toList());
+                    return files.computeIfAbsent(file.get().toPath().toRealPath(), path ->
+                    {
+                        try
+                        {
+                            return new MappedLineList(path);
+                        }
+                        catch (final IOException e)
+                        {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
                 }
-                catch (final IOException e)
+                catch (final IOException | UncheckedIOException e)
                 {
                     // we will get to the assertion
                 }
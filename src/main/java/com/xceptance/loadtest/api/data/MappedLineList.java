@@ -0,0 +1,131 @@
+package com.xceptance.loadtest.api.data;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * An immutable list of the lines of a UTF-8 text file that is memory-mapped instead of read. Only
+ * the offsets of the lines are kept on the heap, a line becomes a string when it is asked for.
+ * Lines are trimmed, empty lines and lines starting with # are not part of the list.
+ *
+ * @author agent
+ */
+public class MappedLineList extends AbstractList<String> implements RandomAccess
+{
+    /**
+     * The file content
+     */
+    private final MappedByteBuffer buffer;
+
+    /**
+     * Where each line starts
+     */
+    private final int[] offsets;
+
+    /**
+     * How long each line is in bytes
+     */
+    private final int[] lengths;
+
+    /**
+     * Map the file and index its lines
+     *
+     * @param path
+     *            the file to read
+     * @throws IOException
+     *             in case the file cannot be read
+     */
+    public MappedLineList(final Path path) throws IOException
+    {
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            final long size = channel.size();
+            if (size > Integer.MAX_VALUE)
+            {
+                throw new IOException("File is too large to be mapped: " + path);
+            }
+
+            // the mapping stays valid after the channel is closed
+            this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+
+        final int limit = buffer.limit();
+
+        int[] offsets = new int[1024];
+        int[] lengths = new int[1024];
+        int count = 0;
+
+        int pos = 0;
+        while (pos < limit)
+        {
+            // find the end of the line, \r and \n both end it, empty lines are dropped anyway
+            int end = pos;
+            while (end < limit && buffer.get(end) != '\n' && buffer.get(end) != '\r')
+            {
+                end++;
+            }
+
+            // trim the same way String.trim() does, all these chars are single bytes in UTF-8
+            int start = pos;
+            while (start < end && (buffer.get(start) & 0xff) <= ' ')
+            {
+                start++;
+            }
+            int stop = end;
+            while (stop > start && (buffer.get(stop - 1) & 0xff) <= ' ')
+            {
+                stop--;
+            }
+
+            // keep everything that is not empty and no comment
+            if (stop > start && buffer.get(start) != '#')
+            {
+                if (count == offsets.length)
+                {
+                    offsets = Arrays.copyOf(offsets, count << 1);
+                    lengths = Arrays.copyOf(lengths, count << 1);
+                }
+                offsets[count] = start;
+                lengths[count] = stop - start;
+                count++;
+            }
+
+            pos = end + 1;
+        }
+
+        this.offsets = Arrays.copyOf(offsets, count);
+        this.lengths = Arrays.copyOf(lengths, count);
+    }
+
+    /**
+     * Decodes the line at the given position
+     *
+     * @param index
+     *            the line to get
+     * @return the line as string
+     */
+    @Override
+    public String get(final int index)
+    {
+        final byte[] line = new byte[lengths[index]];
+        buffer.get(offsets[index], line, 0, line.length);
+
+        return new String(line, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The number of lines
+     */
+    @Override
+    public int size()
+    {
+        return offsets.length;
+    }
+}
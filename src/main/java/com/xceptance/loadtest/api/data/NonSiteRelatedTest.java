@@ -1,5 +1,7 @@
 package com.xceptance.loadtest.api.data;
 
+import org.junit.Assert;
+
 /**
  * Interface to disable Site specific test distribution. Use this instead of SiteByMarketShare if
  * you want to use a test to configure the test case the hard way and not via mapping. Or use it for
@@ -13,6 +15,12 @@ public interface NonSiteRelatedTest extends SiteByMarketShare
     @Override
     default Site supplySite()
     {
-        return SiteSupplier.siteById("noneSite").get();
+        final Site site = SiteSupplier.site("noneSite");
+        if (site == null)
+        {
+            Assert.fail("Site 'noneSite' is not configured");
+        }
+
+        return site;
     }
 }
\ No newline at end of file
@@ -1,5 +1,7 @@
 package com.xceptance.loadtest.api.data;
 
+import org.junit.Assert;
+
 /**
  *
  * General Interface to use the site specific configuration as well as the automated test
@@ -10,6 +12,12 @@ public interface SiteByMarketShare
 {
     default Site supplySite()
     {
-        return SiteSupplier.randomSite().get();
+        final Site site = SiteSupplier.random();
+        if (site == null)
+        {
+            Assert.fail("No active site with a market share configured");
+        }
+
+        return site;
     }
 }
@@ -1,11 +1,14 @@
 package com.xceptance.loadtest.api.data;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+import com.xceptance.loadtest.api.configuration.EnumConfigList;
+import com.xceptance.loadtest.api.util.AliasTable;
 import com.xceptance.loadtest.api.util.Context;
-import com.xceptance.xlt.api.util.XltRandom;
 
 /**
  * Will return either a random site based on the random distribution or a fixed one if you ask it by
@@ -15,47 +18,28 @@ import com.xceptance.xlt.api.util.XltRandom;
  */
 public class SiteSupplier
 {
-    private static List<Site> getSitesAndMarketShare()
-    {
-        final List<Site> sites = new ArrayList<>(100);
-
-        // ok, setup the sites
-        for (final Site site : Context.defaultConfiguration.get().sites.unweightedList())
-        {
-            // if the site is not active, ignore it
-            if (site.active == false)
-            {
-                continue;
-            }
-
-            // add the site as often as the market share indicates
-            for (int i = 0; i < site.marketshare; i++)
-            {
-                sites.add(site);
-            }
-        }
-
-        return sites;
-    }
+    /**
+     * The prepared sites of the default configuration
+     */
+    private static volatile Sites sites;
 
     /**
-     * Instance based random site calculation
+     * Returns the prepared sites, the default configuration does not change, so we set them up
+     * once only.
      *
-     * @return a random site by initial weight chosen
+     * @return the prepared sites
      */
-    private static Optional<Site> getRandomSite()
+    private static Sites sites()
     {
-        final List<Site> sites = getSitesAndMarketShare();
-
-        if (sites.isEmpty())
-        {
-            return Optional.empty();
-        }
-        else
+        Sites current = sites;
+        if (current == null)
         {
-            return Optional.of(sites.get(XltRandom.nextInt(sites.size())));
+            // a race just builds the same twice
+            current = new Sites(Context.defaultConfiguration().sites);
+            sites = current;
         }
 
+        return current;
     }
 
     /**
@@ -65,7 +49,17 @@ public class SiteSupplier
      */
     public static Optional<Site> randomSite()
     {
-        return getRandomSite();
+        return Optional.ofNullable(random());
+    }
+
+    /**
+     * Return a random site based on the active sites and their marketshare without any wrapping
+     *
+     * @return a random site or null if there is no active site
+     */
+    public static Site random()
+    {
+        return sites().random();
     }
 
     /**
@@ -77,6 +71,74 @@ public class SiteSupplier
      */
     public static Optional<Site> siteById(final String id)
     {
-        return Context.defaultConfiguration.get().sites.getById(id);
+        return Optional.ofNullable(site(id));
+    }
+
+    /**
+     * Returns a site by id without any wrapping
+     *
+     * @param id
+     *            the site id
+     * @return the site with this id or null if we don't know it
+     */
+    public static Site site(final String id)
+    {
+        return sites().byId.get(id);
+    }
+
+    /**
+     * All sites by id and the active ones by market share, does not change after setup
+     */
+    private static class Sites
+    {
+        /**
+         * The active sites
+         */
+        private final Site[] active;
+
+        /**
+         * The market share of the active sites
+         */
+        private final AliasTable marketshare;
+
+        /**
+         * All sites by their id
+         */
+        private final Map<String, Site> byId;
+
+        private Sites(final EnumConfigList<Site> source)
+        {
+            final List<Site> all = source.unweightedList();
+            final List<Site> activeSites = new ArrayList<>(all.size());
+
+            this.byId = new HashMap<>(2 * all.size() + 1);
+
+            for (final Site site : all)
+            {
+                byId.put(site.id, site);
+
+                // if the site is not active, ignore it
+                if (site.active)
+                {
+                    activeSites.add(site);
+                }
+            }
+
+            this.active = activeSites.toArray(new Site[activeSites.size()]);
+
+            final int[] weights = new int[active.length];
+            for (int i = 0; i < weights.length; i++)
+            {
+                // a negative market share never counted
+                weights[i] = Math.max(0, active[i].marketshare);
+            }
+            this.marketshare = new AliasTable(weights);
+        }
+
+        private Site random()
+        {
+            final int index = marketshare.next();
+            return index < 0 ? null : active[index];
+        }
     }
 }
@@ -0,0 +1,526 @@
+package com.xceptance.loadtest.api.json;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.ReadContext;
+
+import net.minidev.json.JSONArray;
+
+/**
+ * Evaluates a fixed set of JSON paths in a single pass over a response. The definite paths, such
+ * as <code>$.query.tokens[0]['name']</code>, are compiled into one tree that is matched while the
+ * JSON is streamed, only the values at these paths are materialized, everything else is skipped.
+ * The values are of the same types JsonPath returns, so both are interchangeable.
+ * <p>
+ * Everything the streaming cannot answer is left to JsonPath and the full document: paths with
+ * wildcards, deep scans, filters, or functions, documents that are not strict JSON, and paths
+ * that don't match, so that the error is the one JsonPath reports.
+ *
+ * @author agent
+ */
+public class JsonPathExtractor
+{
+    /**
+     * The compiled paths, also for the fallback
+     */
+    private final JsonPath[] paths;
+
+    /**
+     * The tree of all paths we can stream
+     */
+    private final Node root = new Node();
+
+    /**
+     * How many paths we can stream
+     */
+    private final int streamable;
+
+    /**
+     * Set up the matching for a set of paths
+     *
+     * @param paths
+     *            the compiled JSON paths to evaluate later, the index in this list is the index of
+     *            the result
+     */
+    public JsonPathExtractor(final List<JsonPath> paths)
+    {
+        this.paths = paths.toArray(new JsonPath[paths.size()]);
+
+        int streamable = 0;
+        for (int i = 0; i < this.paths.length; i++)
+        {
+            // the normalized form, e.g. $['a'][0]
+            final List<Object> segments = this.paths[i].isDefinite() ? parse(this.paths[i].getPath()) : null;
+            if (segments != null)
+            {
+                Node node = root;
+                for (final Object segment : segments)
+                {
+                    node = node.child(segment);
+                }
+                node.add(i);
+                streamable++;
+            }
+        }
+
+        this.streamable = streamable;
+    }
+
+    /**
+     * Evaluates all paths against a document.
+     *
+     * @param reader
+     *            opens the document for streaming, must permit to be called again for the fallback
+     * @param document
+     *            parses the full document for the fallback
+     * @return the values per path
+     */
+    public Result extract(final Supplier<Reader> reader, final Supplier<ReadContext> document)
+    {
+        final Result result = new Result(document);
+        if (streamable == 0)
+        {
+            return result;
+        }
+
+        try (final JsonReader jsonReader = new JsonReader(reader.get()))
+        {
+            // be strict, everything else is for JsonPath to decide
+            jsonReader.setLenient(false);
+
+            final Object[] values = new Object[paths.length];
+            final boolean[] found = new boolean[paths.length];
+
+            walk(jsonReader, root, values, found);
+
+            result.values = values;
+            result.found = found;
+        }
+        catch (final IOException | UncheckedIOException | IllegalStateException | JsonParseException | NumberFormatException e)
+        {
+            // not what we expected, the fallback will complain properly if needed
+        }
+
+        return result;
+    }
+
+    /**
+     * Matches the current value of the reader against a node of the path tree
+     */
+    private static void walk(final JsonReader reader, final Node node, final Object[] values, final boolean[] found) throws IOException
+    {
+        // wanted as whole, everything below is taken from the materialized value
+        if (node.captures.length > 0)
+        {
+            assign(node, materialize(reader), values, found);
+            return;
+        }
+
+        final JsonToken token = reader.peek();
+        if (token == JsonToken.BEGIN_OBJECT && node.fields != null)
+        {
+            reader.beginObject();
+            while (reader.hasNext())
+            {
+                final Node child = node.fields.get(reader.nextName());
+                if (child != null)
+                {
+                    // a duplicate name replaces what we got before, as it does for JsonPath
+                    reset(child, found);
+                    walk(reader, child, values, found);
+                }
+                else
+                {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+        else if (token == JsonToken.BEGIN_ARRAY && node.indices != null)
+        {
+            reader.beginArray();
+            int index = 0;
+            while (reader.hasNext())
+            {
+                final Node child = node.indices.get(index++);
+                if (child != null)
+                {
+                    walk(reader, child, values, found);
+                }
+                else
+                {
+                    reader.skipValue();
+                }
+            }
+            reader.endArray();
+        }
+        else
+        {
+            reader.skipValue();
+        }
+    }
+
+    /**
+     * Forgets the values of a node and everything below
+     */
+    private static void reset(final Node node, final boolean[] found)
+    {
+        for (final int capture : node.captures)
+        {
+            found[capture] = false;
+        }
+        if (node.fields != null)
+        {
+            for (final Node child : node.fields.values())
+            {
+                reset(child, found);
+            }
+        }
+        if (node.indices != null)
+        {
+            for (final Node child : node.indices.values())
+            {
+                reset(child, found);
+            }
+        }
+    }
+
+    /**
+     * Sets the value for a node and everything below
+     */
+    private static void assign(final Node node, final Object value, final Object[] values, final boolean[] found)
+    {
+        for (final int capture : node.captures)
+        {
+            values[capture] = value;
+            found[capture] = true;
+        }
+
+        if (node.fields != null && value instanceof Map)
+        {
+            final Map<?, ?> map = (Map<?, ?>) value;
+            for (final Map.Entry<String, Node> entry : node.fields.entrySet())
+            {
+                if (map.containsKey(entry.getKey()))
+                {
+                    assign(entry.getValue(), map.get(entry.getKey()), values, found);
+                }
+            }
+        }
+        if (node.indices != null && value instanceof List)
+        {
+            final List<?> list = (List<?>) value;
+            for (final Map.Entry<Integer, Node> entry : node.indices.entrySet())
+            {
+                if (entry.getKey() < list.size())
+                {
+                    assign(entry.getValue(), list.get(entry.getKey()), values, found);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the current value the way JsonPath with json-smart represents it
+     */
+    private static Object materialize(final JsonReader reader) throws IOException
+    {
+        switch (reader.peek())
+        {
+            case BEGIN_OBJECT:
+                final Map<String, Object> map = new LinkedHashMap<>();
+                reader.beginObject();
+                while (reader.hasNext())
+                {
+                    final String name = reader.nextName();
+                    map.put(name, materialize(reader));
+                }
+                reader.endObject();
+                return map;
+
+            case BEGIN_ARRAY:
+                final JSONArray array = new JSONArray();
+                reader.beginArray();
+                while (reader.hasNext())
+                {
+                    array.add(materialize(reader));
+                }
+                reader.endArray();
+                return array;
+
+            case STRING:
+                return reader.nextString();
+
+            case NUMBER:
+                return number(reader.nextString());
+
+            case BOOLEAN:
+                return reader.nextBoolean();
+
+            case NULL:
+                reader.nextNull();
+                return null;
+
+            default:
+                throw new IllegalStateException("Unexpected token " + reader.peek());
+        }
+    }
+
+    /**
+     * Turns a number into the type json-smart would have chosen
+     */
+    private static Object number(final String number)
+    {
+        if (number.indexOf('.') >= 0 || number.indexOf('e') >= 0 || number.indexOf('E') >= 0)
+        {
+            // high precision if there are more digits than a double can carry
+            return number.length() > 18 ? new BigDecimal(number) : Double.valueOf(number);
+        }
+
+        try
+        {
+            final long value = Long.parseLong(number);
+            if (value == (int) value)
+            {
+                return Integer.valueOf((int) value);
+            }
+            return Long.valueOf(value);
+        }
+        catch (final NumberFormatException e)
+        {
+            return new BigInteger(number);
+        }
+    }
+
+    /**
+     * Splits a simple definite path into names and indices, such as $.a['b'][0]
+     *
+     * @param path
+     *            the path to parse
+     * @return the segments, String for a name and Integer for an index, or null when the path is
+     *         more than that
+     */
+    private static List<Object> parse(final String path)
+    {
+        if (!path.startsWith("$"))
+        {
+            return null;
+        }
+
+        final List<Object> segments = new ArrayList<>();
+        final int length = path.length();
+
+        int pos = 1;
+        while (pos < length)
+        {
+            final char c = path.charAt(pos);
+            if (c == '.')
+            {
+                // .name, but not ..name (deep scan)
+                final int start = ++pos;
+                while (pos < length && path.charAt(pos) != '.' && path.charAt(pos) != '[')
+                {
+                    pos++;
+                }
+
+                final String name = path.substring(start, pos);
+                if (name.isEmpty() || !isPlainName(name))
+                {
+                    return null;
+                }
+                segments.add(name);
+            }
+            else if (c == '[')
+            {
+                final int end = path.indexOf(']', pos);
+                if (end < 0)
+                {
+                    return null;
+                }
+
+                final String inner = path.substring(pos + 1, end).trim();
+                pos = end + 1;
+
+                if (inner.length() >= 2 && (inner.charAt(0) == '\'' || inner.charAt(0) == '"') && inner.charAt(inner.length() - 1) == inner.charAt(0))
+                {
+                    // ['name'] or ["name"], but no lists and no escapes
+                    final String name = inner.substring(1, inner.length() - 1);
+                    if (name.indexOf(inner.charAt(0)) >= 0 || name.indexOf('\\') >= 0)
+                    {
+                        return null;
+                    }
+                    segments.add(name);
+                }
+                else if (!inner.isEmpty() && inner.chars().allMatch(Character::isDigit))
+                {
+                    // [0], negative indices count from the end, which we don't know when streaming
+                    try
+                    {
+                        segments.add(Integer.valueOf(inner));
+                    }
+                    catch (final NumberFormatException e)
+                    {
+                        return null;
+                    }
+                }
+                else
+                {
+                    return null;
+                }
+            }
+            else
+            {
+                return null;
+            }
+        }
+
+        return segments;
+    }
+
+    /**
+     * Names without anything JsonPath might interpret
+     */
+    private static boolean isPlainName(final String name)
+    {
+        for (int i = 0; i < name.length(); i++)
+        {
+            final char c = name.charAt(i);
+            if (c == '*' || c == '(' || c == ')' || c == '\'' || c == '"' || c == ' ' || c == '@' || c == '?' || c == ',')
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * A position in the path tree
+     */
+    private static class Node
+    {
+        /**
+         * The indices of the paths that end here
+         */
+        private int[] captures = new int[0];
+
+        /**
+         * Children by name
+         */
+        private Map<String, Node> fields;
+
+        /**
+         * Children by array index
+         */
+        private Map<Integer, Node> indices;
+
+        private Node child(final Object segment)
+        {
+            if (segment instanceof Integer)
+            {
+                if (indices == null)
+                {
+                    indices = new HashMap<>();
+                }
+                return indices.computeIfAbsent((Integer) segment, k -> new Node());
+            }
+            else
+            {
+                if (fields == null)
+                {
+                    fields = new HashMap<>();
+                }
+                return fields.computeIfAbsent((String) segment, k -> new Node());
+            }
+        }
+
+        private void add(final int capture)
+        {
+            final int[] newCaptures = new int[captures.length + 1];
+            System.arraycopy(captures, 0, newCaptures, 0, captures.length);
+            newCaptures[captures.length] = capture;
+
+            captures = newCaptures;
+        }
+    }
+
+    /**
+     * The values of the paths for one document
+     */
+    public class Result
+    {
+        /**
+         * The full document for everything we could not stream
+         */
+        private final Supplier<ReadContext> document;
+
+        /**
+         * The document parsed by JsonPath, only when needed
+         */
+        private ReadContext context;
+
+        /**
+         * The streamed values, null if streaming did not work
+         */
+        private Object[] values;
+
+        /**
+         * Which of the streamed values have been found
+         */
+        private boolean[] found;
+
+        private Result(final Supplier<ReadContext> document)
+        {
+            this.document = document;
+        }
+
+        /**
+         * Returns the value of a path, exactly as {@link ReadContext#read(JsonPath)} would do
+         *
+         * @param index
+         *            the index of the path as given at construction
+         * @return the value at the path
+         * @throws com.jayway.jsonpath.PathNotFoundException
+         *             if the path does not exist
+         */
+        @SuppressWarnings("unchecked")
+        public <T> T get(final int index)
+        {
+            if (found != null && found[index])
+            {
+                return (T) values[index];
+            }
+
+            // not streamed or not found, JsonPath shall decide and complain
+            return context().read(paths[index]);
+        }
+
+        /**
+         * Returns the parsed document and parses it when needed
+         *
+         * @return the parsed document
+         */
+        private ReadContext context()
+        {
+            if (context == null)
+            {
+                context = document.get();
+            }
+            return context;
+        }
+    }
+}
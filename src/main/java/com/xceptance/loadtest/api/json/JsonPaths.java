@@ -0,0 +1,160 @@
+package com.xceptance.loadtest.api.json;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.jayway.jsonpath.JsonPath;
+import com.xceptance.loadtest.api.data.CustomValues;
+import com.xceptance.xlt.api.util.XltProperties;
+
+/**
+ * Agent-wide cache of compiled JSON paths. Compiling a path is not free and the same few paths are
+ * used over and over again by all users, so compile them once and share them.
+ * <p>
+ * The cache holds at most <code>general.jsonpath.cache.size</code> paths. When it is full, the
+ * paths not used since the last time it was full are pushed out, the ones in use stay, a cheap
+ * variant of least recently used that needs no lock for a hit. Paths put together from response
+ * data, such as ids, hence come and go and don't block the cache for the common ones.
+ *
+ * @author agent
+ */
+public class JsonPaths
+{
+    /**
+     * Names of the custom values that report the cache efficiency
+     */
+    public static final String HITS = "jsonpath.cache.hits";
+    public static final String MISSES = "jsonpath.cache.misses";
+
+    /**
+     * The compiled paths by their definition
+     */
+    private static final ConcurrentHashMap<String, Entry> CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * Only one thread cleans up, the others don't wait for it
+     */
+    private static final ReentrantLock EVICTION = new ReentrantLock();
+
+    /**
+     * The maximum number of paths to keep
+     */
+    private static final int MAX_SIZE = XltProperties.getInstance().getProperty("general.jsonpath.cache.size", 1000);
+
+    /**
+     * How often did we have it already or not since the last report
+     */
+    private static final LongAdder hits = new LongAdder();
+    private static final LongAdder misses = new LongAdder();
+
+    /**
+     * Returns the compiled path from the cache or compiles it.
+     *
+     * @param path
+     *            the JSON path
+     * @return the compiled path
+     */
+    public static JsonPath compile(final String path)
+    {
+        final Entry entry = CACHE.get(path);
+        if (entry != null)
+        {
+            hits.increment();
+
+            // don't write if we don't have to, that keeps the cache line shared
+            if (!entry.used)
+            {
+                entry.used = true;
+            }
+            return entry.path;
+        }
+
+        misses.increment();
+
+        final JsonPath compiled = JsonPath.compile(path);
+        if (CACHE.size() >= MAX_SIZE && !evict())
+        {
+            // all in use, don't push a common one out for this one
+            return compiled;
+        }
+
+        final Entry existing = CACHE.putIfAbsent(path, new Entry(compiled));
+        return existing != null ? existing.path : compiled;
+    }
+
+    /**
+     * Removes the paths that have not been used since the last eviction and marks the others as
+     * unused.
+     *
+     * @return true if there is room now
+     */
+    private static boolean evict()
+    {
+        if (!EVICTION.tryLock())
+        {
+            // someone else is at it
+            return false;
+        }
+
+        try
+        {
+            if (CACHE.size() < MAX_SIZE)
+            {
+                return true;
+            }
+
+            for (final Iterator<Entry> i = CACHE.values().iterator(); i.hasNext();)
+            {
+                final Entry entry = i.next();
+                if (entry.used)
+                {
+                    entry.used = false;
+                }
+                else
+                {
+                    i.remove();
+                }
+            }
+
+            return CACHE.size() < MAX_SIZE;
+        }
+        finally
+        {
+            EVICTION.unlock();
+        }
+    }
+
+    /**
+     * Reports hits and misses since the last report as custom values, if there have been any. The
+     * counters are agent-wide, so {@link com.xceptance.loadtest.api.util.AgentWatchdog} reports
+     * them at a fixed interval from its own session and not a user from its test.
+     */
+    public static void logStatistics()
+    {
+        final long h = hits.sumThenReset();
+        final long m = misses.sumThenReset();
+
+        if (h + m > 0)
+        {
+            CustomValues.log(HITS, h);
+            CustomValues.log(MISSES, m);
+        }
+    }
+
+    /**
+     * A compiled path and whether it has been used lately
+     */
+    private static class Entry
+    {
+        private final JsonPath path;
+
+        private volatile boolean used;
+
+        private Entry(final JsonPath path)
+        {
+            this.path = path;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.xceptance.loadtest.api.json;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PushbackInputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import org.htmlunit.WebResponse;
+
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.ReadContext;
+import com.xceptance.xlt.engine.httprequest.HttpResponse;
+
+/**
+ * Access to the body of a JSON response without turning it into a string first. The parsers read
+ * the bytes of the response directly, so we don't keep a decoded copy of the body around just to
+ * parse it once.
+ *
+ * @author agent
+ */
+public class JsonResponses
+{
+    /**
+     * The UTF-8 byte order mark, the string decoding of the response drops it, so we do too
+     */
+    private static final byte[] BOM = { (byte) 0xEF, (byte) 0xBB, (byte) 0xBF };
+
+    /**
+     * Returns the charset of the response body
+     *
+     * @param response
+     *            the response
+     * @return the charset stated by the response or UTF-8 if there is none
+     */
+    public static Charset charset(final HttpResponse response)
+    {
+        final Charset charset = response.getWebResponse().getContentCharset();
+        return charset != null ? charset : StandardCharsets.UTF_8;
+    }
+
+    /**
+     * Opens the raw body of the response. Every call returns a new stream, the caller has to close
+     * it.
+     *
+     * @param response
+     *            the response
+     * @return the body as stream
+     */
+    public static InputStream stream(final HttpResponse response)
+    {
+        final WebResponse webResponse = response.getWebResponse();
+
+        try
+        {
+            final PushbackInputStream in = new PushbackInputStream(webResponse.getContentAsStream(), BOM.length);
+
+            final byte[] start = new byte[BOM.length];
+            final int read = in.readNBytes(start, 0, start.length);
+            if (read != BOM.length || start[0] != BOM[0] || start[1] != BOM[1] || start[2] != BOM[2])
+            {
+                // no BOM, give it back
+                in.unread(start, 0, read);
+            }
+
+            return in;
+        }
+        catch (final IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Opens the body of the response as characters. Every call returns a new reader, the caller
+     * has to close it.
+     *
+     * @param response
+     *            the response
+     * @return the body as reader
+     */
+    public static Reader reader(final HttpResponse response)
+    {
+        return new InputStreamReader(stream(response), charset(response));
+    }
+
+    /**
+     * Parses the body of the response for JsonPath queries
+     *
+     * @param response
+     *            the response
+     * @return the parsed document
+     */
+    public static ReadContext parse(final HttpResponse response)
+    {
+        try (final InputStream in = stream(response))
+        {
+            return JsonPath.using(Configuration.defaultConfiguration()).parse(in, charset(response).name());
+        }
+        catch (final IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Copies the raw body of the response, for when we need it after the response is gone, such
+     * as on another thread.
+     *
+     * @param response
+     *            the response
+     * @return the body without a byte order mark
+     */
+    public static byte[] bytes(final HttpResponse response)
+    {
+        try (final InputStream in = stream(response))
+        {
+            return in.readAllBytes();
+        }
+        catch (final IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Opens a copied body as characters, see {@link #bytes(HttpResponse)}
+     *
+     * @param body
+     *            the body
+     * @param charset
+     *            the charset of the body
+     * @return the body as reader
+     */
+    public static Reader reader(final byte[] body, final Charset charset)
+    {
+        return new InputStreamReader(new ByteArrayInputStream(body), charset);
+    }
+
+    /**
+     * Parses a copied body for JsonPath queries, see {@link #bytes(HttpResponse)}
+     *
+     * @param body
+     *            the body
+     * @param charset
+     *            the charset of the body
+     * @return the parsed document
+     */
+    public static ReadContext parse(final byte[] body, final Charset charset)
+    {
+        return JsonPath.using(Configuration.defaultConfiguration()).parse(new ByteArrayInputStream(body), charset.name());
+    }
+}
@@ -0,0 +1,123 @@
+package com.xceptance.loadtest.api.net;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Matches HTTP status codes against a regular expression such as <code>20.</code> or
+ * <code>404|401</code>. The expression is evaluated once for all codes from 0 to 599 and the
+ * result is kept as bits, so checking a response does not allocate anything. Codes outside that
+ * range are rare and checked with the precompiled expression.
+ * <p>
+ * Matchers are immutable and shared agent-wide by their pattern.
+ *
+ * @author agent
+ */
+public class StatusCodeMatcher
+{
+    /**
+     * The codes we precompute
+     */
+    private static final int CODES = 600;
+
+    /**
+     * The matchers by pattern
+     */
+    private static final ConcurrentHashMap<String, StatusCodeMatcher> MATCHERS = new ConcurrentHashMap<>();
+
+    /**
+     * The pattern as given
+     */
+    private final String pattern;
+
+    /**
+     * The compiled pattern for anything out of range
+     */
+    private final Pattern compiled;
+
+    /**
+     * One bit per status code, set if the code matches
+     */
+    private final long[] bits = new long[(CODES + 63) >>> 6];
+
+    /**
+     * Evaluate the pattern for all codes we precompute
+     *
+     * @param pattern
+     *            the regular expression the status code must match as a whole
+     */
+    private StatusCodeMatcher(final String pattern)
+    {
+        this.pattern = pattern;
+        this.compiled = Pattern.compile(pattern);
+
+        for (int code = 0; code < CODES; code++)
+        {
+            if (compiled.matcher(String.valueOf(code)).matches())
+            {
+                bits[code >>> 6] |= 1L << code;
+            }
+        }
+    }
+
+    /**
+     * Returns the matcher for a pattern
+     *
+     * @param pattern
+     *            the regular expression the status code must match as a whole, e.g. "20."
+     * @return the matcher
+     * @throws java.util.regex.PatternSyntaxException
+     *             if the pattern is not a valid regular expression
+     */
+    public static StatusCodeMatcher of(final String pattern)
+    {
+        final StatusCodeMatcher matcher = MATCHERS.get(pattern);
+        if (matcher != null)
+        {
+            return matcher;
+        }
+
+        final StatusCodeMatcher newMatcher = new StatusCodeMatcher(pattern);
+        final StatusCodeMatcher existing = MATCHERS.putIfAbsent(pattern, newMatcher);
+
+        return existing != null ? existing : newMatcher;
+    }
+
+    /**
+     * Returns the matcher for exactly one status code
+     *
+     * @param statusCode
+     *            the status code
+     * @return the matcher
+     */
+    public static StatusCodeMatcher of(final int statusCode)
+    {
+        return of(String.valueOf(statusCode));
+    }
+
+    /**
+     * Checks a status code
+     *
+     * @param statusCode
+     *            the status code of the response
+     * @return true if the code matches the pattern
+     */
+    public boolean matches(final int statusCode)
+    {
+        if (statusCode >= 0 && statusCode < CODES)
+        {
+            return (bits[statusCode >>> 6] & (1L << statusCode)) != 0;
+        }
+
+        return compiled.matcher(String.valueOf(statusCode)).matches();
+    }
+
+    /**
+     * Returns the pattern
+     */
+    @Override
+    public String toString()
+    {
+        return pattern;
+    }
+}
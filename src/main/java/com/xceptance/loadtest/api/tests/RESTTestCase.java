@@ -1,13 +1,15 @@
 package com.xceptance.loadtest.api.tests;
 
-import java.text.MessageFormat;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.junit.Before;
 import org.junit.Test;
 
 import com.xceptance.loadtest.api.data.Site;
 import com.xceptance.loadtest.api.data.SiteByMarketShare;
+import com.xceptance.loadtest.api.util.AgentWatchdog;
 import com.xceptance.loadtest.api.util.Context;
+import com.xceptance.loadtest.api.util.DeferredValidations;
 import com.xceptance.xlt.api.engine.Session;
 import com.xceptance.xlt.api.util.XltLogger;
 import com.xceptance.xlt.api.util.XltProperties;
@@ -40,6 +42,16 @@ public abstract class RESTTestCase extends com.xceptance.xlt.api.tests.AbstractT
         }
     };
 
+    /**
+     * Site specific names by site id and name
+     */
+    private static final ConcurrentHashMap<String, ConcurrentHashMap<String, String>> SITE_SPECIFIC_NAMES = new ConcurrentHashMap<>();
+
+    /**
+     * How many names we keep per site at most
+     */
+    private static final int MAX_SITE_SPECIFIC_NAMES = 1000;
+
     /**
      * Constructor
      */
@@ -49,6 +61,9 @@ public abstract class RESTTestCase extends com.xceptance.xlt.api.tests.AbstractT
 
         super.__setup();
 
+        // keep an eye on the agent itself, only the first test starts it
+        AgentWatchdog.start();
+
         // ok, remove the client from the shutdown list so we can recylce it
         Session.getCurrent().removeShutdownListener(WEBCLIENT.get());
 
@@ -66,12 +81,58 @@ public abstract class RESTTestCase extends com.xceptance.xlt.api.tests.AbstractT
                         getSite());
     }
 
+    /**
+     * Returns the web client of the current user, it is the one that is set as default for all
+     * requests of this thread.
+     *
+     * @return the web client
+     */
+    public static XltWebClient getWebClient()
+    {
+        return WEBCLIENT.get();
+    }
+
+    /**
+     * Returns the name with the site id appended, unless it is the default or no site. The names
+     * are computed once and shared agent-wide, because we need them for every action.
+     *
+     * @param name
+     *            the name, such as a timer name
+     * @param siteId
+     *            the id of the site
+     * @return the site specific name
+     */
     public static String getSiteSpecificName(final String name, final String siteId)
     {
         if ("default".equals(siteId) == false && "noneSite".equals(siteId) == false)
         {
             // we have something non default
-            return MessageFormat.format("{0}_{1}", name, siteId);
+            if (name == null || siteId == null)
+            {
+                return name + "_" + siteId;
+            }
+
+            ConcurrentHashMap<String, String> names = SITE_SPECIFIC_NAMES.get(siteId);
+            if (names == null)
+            {
+                names = SITE_SPECIFIC_NAMES.computeIfAbsent(siteId, k -> new ConcurrentHashMap<>());
+            }
+
+            final String siteSpecificName = names.get(name);
+            if (siteSpecificName != null)
+            {
+                return siteSpecificName;
+            }
+
+            final String newName = name + "_" + siteId;
+            if (names.size() >= MAX_SITE_SPECIFIC_NAMES)
+            {
+                // names built from data, don't keep them all
+                return newName;
+            }
+
+            final String existing = names.putIfAbsent(name, newName);
+            return existing != null ? existing : newName;
         }
         return name;
     }
@@ -114,6 +175,10 @@ public abstract class RESTTestCase extends com.xceptance.xlt.api.tests.AbstractT
     public void run() throws Throwable
     {
         test();
+
+        // the validations we have not waited for, fail now if one of them failed, when test()
+        // throws we never get here and the pending ones are dropped unchecked
+        DeferredValidations.await();
     }
 
     /**
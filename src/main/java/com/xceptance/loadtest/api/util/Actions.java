@@ -1,8 +1,30 @@
 package com.xceptance.loadtest.api.util;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.htmlunit.CookieManager;
+import org.htmlunit.util.Cookie;
+
+import com.xceptance.loadtest.api.data.ClientCost;
 import com.xceptance.loadtest.api.tests.RESTTestCase;
 import com.xceptance.xlt.api.actions.AbstractAction;
+import com.xceptance.xlt.api.engine.Session;
 import com.xceptance.xlt.engine.SessionImpl;
+import com.xceptance.xlt.engine.XltWebClient;
+import com.xceptance.xlt.engine.httprequest.HttpRequest;
 
 /**
  * Convenience methods for actions to avoid that you have to program it yourself
@@ -53,14 +75,20 @@ public class Actions
             @Override
             public void run() throws Throwable
             {
+                // what the action costs us, not the server
+                final ClientCost cost = ClientCost.start();
+
                 try
                 {
                     super.run();
                 }
                 finally
                 {
+                    final String timerName = RESTTestCase.getSiteSpecificName(getTimerName(), Context.getSite().id);
+                    cost.stopAndLog(timerName);
+
                     // add an empty "page" as the result of this action
-                    SessionImpl.getCurrent().getRequestHistory().add(RESTTestCase.getSiteSpecificName(getTimerName(), Context.getSite().id));
+                    SessionImpl.getCurrent().getRequestHistory().add(timerName);
                 }
             }
 
@@ -82,6 +110,360 @@ public class Actions
         return a.result;
     }
 
+    /**
+     * Names a request for {@link #getAll(String, List)} and {@link #parallel(String, Timed...)}
+     *
+     * @param timerName
+     *            the timer name of the request, the site id is added if needed
+     * @param action
+     *            the request to fire, gets the final timer name
+     * @return the named request
+     */
+    public static <T> Timed<T> timed(final String timerName, final SupplierAction<T> action)
+    {
+        return new Timed<>(timerName, action);
+    }
+
+    /**
+     * Names a request without result for {@link #parallel(String, Timed...)}
+     *
+     * @param timerName
+     *            the timer name of the request, the site id is added if needed
+     * @param action
+     *            the request to fire, gets the final timer name
+     * @return the named request
+     */
+    public static Timed<Object> timedRun(final String timerName, final Action action)
+    {
+        return new Timed<>(timerName, t ->
+        {
+            action.run(t);
+            return null;
+        });
+    }
+
+    /**
+     * Runs independent requests concurrently as one action and returns their results in the
+     * order of the requests. Every request is timed under its own timer name, the action itself
+     * measures the time until the slowest one is done, as a client firing these requests at once
+     * would see it.
+     * <p>
+     * The requests must not run actions themselves, XLT tracks one action at a time per user. All
+     * but the last run on workers of the user, see {@link Workers}. If one of them fails, we wait
+     * for the others and fail with the error of the first failed one in the order given.
+     *
+     * @param timerName
+     *            the name of the action
+     * @param requests
+     *            the requests to fire, see {@link #timed(String, SupplierAction)}
+     * @return the results in the order of the requests
+     * @throws Throwable
+     */
+    public static <T> List<T> getAll(final String timerName, final List<Timed<T>> requests) throws Throwable
+    {
+        return get(timerName, t -> fanOut(requests));
+    }
+
+    /**
+     * Runs independent requests concurrently as one action, see {@link #getAll(String, List)}.
+     *
+     * @param timerName
+     *            the name of the action
+     * @param requests
+     *            the requests to fire, see {@link #timedRun(String, Action)}
+     * @throws Throwable
+     */
+    public static void parallel(final String timerName, final Timed<?>... requests) throws Throwable
+    {
+        final List<Timed<Object>> all = new ArrayList<>(requests.length);
+        for (final Timed<?> request : requests)
+        {
+            all.add(new Timed<>(request.timerName, t -> request.action.get(t)));
+        }
+
+        run(timerName, t -> fanOut(all));
+    }
+
+    /**
+     * The workers of the current user, kept across transactions just like the web client of the
+     * user, so their connections survive too
+     */
+    private static final ThreadLocal<Workers> WORKERS = new ThreadLocal<>();
+
+    /**
+     * The web client of a worker thread
+     */
+    private static final ThreadLocal<XltWebClient> WORKER_CLIENT = new ThreadLocal<>();
+
+    /**
+     * Returns the workers of the current user, sets them up when needed
+     *
+     * @return the workers
+     */
+    private static Workers workers()
+    {
+        final int threads = Context.configuration().fanOutThreads;
+
+        Workers workers = WORKERS.get();
+        if (workers == null)
+        {
+            workers = new Workers(threads);
+            WORKERS.set(workers);
+        }
+        else
+        {
+            workers.resize(threads);
+        }
+
+        return workers;
+    }
+
+    /**
+     * Runs the requests on the workers of the user, the last one runs on the current thread
+     *
+     * @param requests
+     *            the requests to run
+     * @return the results in order
+     * @throws Throwable
+     *             the error of the first failed request
+     */
+    private static <T> List<T> fanOut(final List<Timed<T>> requests) throws Throwable
+    {
+        final int last = requests.size() - 1;
+        if (last < 0)
+        {
+            return new ArrayList<>(0);
+        }
+
+        final Context context = Context.get();
+        final String siteId = context.data.getSite().id;
+
+        // web clients are not thread-safe, the workers have their own and start with our
+        // cookies as they are before we fire anything
+        final CookieManager cookieManager = RESTTestCase.getWebClient().getCookieManager();
+        final Set<Cookie> cookies = cookieManager.getCookies();
+        final Workers workers = workers();
+
+        final List<Future<Outcome<T>>> futures = new ArrayList<>(last);
+        for (int i = 0; i < last; i++)
+        {
+            final Timed<T> request = requests.get(i);
+            final String timerName = RESTTestCase.getSiteSpecificName(request.timerName, siteId);
+
+            final FutureTask<Outcome<T>> future = new FutureTask<>(() ->
+            {
+                Context.attach(context);
+
+                final CookieManager workerCookies = WORKER_CLIENT.get().getCookieManager();
+                workerCookies.clearCookies();
+                for (final Cookie cookie : cookies)
+                {
+                    workerCookies.addCookie(cookie);
+                }
+
+                try
+                {
+                    final T result = request.action.get(timerName);
+                    return new Outcome<>(result, changedCookies(cookies, workerCookies.getCookies()));
+                }
+                catch (final Exception | Error e)
+                {
+                    throw e;
+                }
+                catch (final Throwable e)
+                {
+                    throw new ExecutionException(e);
+                }
+                finally
+                {
+                    Context.detach();
+                }
+            });
+
+            workers.pool.execute(future);
+            futures.add(future);
+        }
+
+        @SuppressWarnings("unchecked")
+        final T[] results = (T[]) new Object[last + 1];
+        Throwable lastFailure = null;
+
+        try
+        {
+            final Timed<T> request = requests.get(last);
+            results[last] = request.action.get(RESTTestCase.getSiteSpecificName(request.timerName, siteId));
+        }
+        catch (final Throwable e)
+        {
+            lastFailure = e;
+        }
+
+        // wait for everyone, nobody shall run on when we are done, the first failure in order
+        // wins, not the first in time
+        Throwable failure = null;
+        for (int i = 0; i < last; i++)
+        {
+            try
+            {
+                final Outcome<T> outcome = futures.get(i).get();
+                results[i] = outcome.result;
+
+                // what the servers told the workers, we know now too
+                for (final Cookie cookie : outcome.cookies)
+                {
+                    cookieManager.addCookie(cookie);
+                }
+            }
+            catch (final ExecutionException e)
+            {
+                if (failure == null)
+                {
+                    final Throwable cause = e.getCause();
+                    failure = cause instanceof ExecutionException && cause.getCause() != null ? cause.getCause() : cause;
+                }
+            }
+        }
+
+        if (failure == null)
+        {
+            failure = lastFailure;
+        }
+        if (failure != null)
+        {
+            throw failure;
+        }
+
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Returns the cookies that are new or have a new value
+     *
+     * @param before
+     *            the cookies we started with
+     * @param after
+     *            the cookies we have now
+     * @return the new and changed cookies
+     */
+    private static List<Cookie> changedCookies(final Set<Cookie> before, final Set<Cookie> after)
+    {
+        // cookies are equal by name, domain, and path, so we have to compare the values
+        final Map<Cookie, String> values = new HashMap<>(2 * before.size() + 1);
+        for (final Cookie cookie : before)
+        {
+            values.put(cookie, cookie.getValue());
+        }
+
+        final List<Cookie> changed = new ArrayList<>(0);
+        for (final Cookie cookie : after)
+        {
+            if (!values.containsKey(cookie) || !Objects.equals(values.get(cookie), cookie.getValue()))
+            {
+                changed.add(cookie);
+            }
+        }
+
+        return changed;
+    }
+
+    /**
+     * A request with its timer name, see {@link Actions#timed(String, SupplierAction)}
+     *
+     * @param <T>
+     *            the result type
+     */
+    public static final class Timed<T>
+    {
+        private final String timerName;
+
+        private final SupplierAction<T> action;
+
+        private Timed(final String timerName, final SupplierAction<T> action)
+        {
+            this.timerName = timerName;
+            this.action = action;
+        }
+    }
+
+    /**
+     * The result of a worker and the cookies it got
+     */
+    private static class Outcome<T>
+    {
+        private final T result;
+
+        private final List<Cookie> cookies;
+
+        private Outcome(final T result, final List<Cookie> cookies)
+        {
+            this.result = result;
+            this.cookies = cookies;
+        }
+    }
+
+    /**
+     * The workers of a user. They live in the thread group of the user, so XLT sees their
+     * requests as part of the session, and each has its own web client. There are at most
+     * <code>general.fanOut.threads</code> of them. They are kept from one transaction to the next,
+     * so their connections and TLS sessions are reused, only the cookies are taken over from the
+     * user for every fan-out. Idle workers go away and close their client.
+     */
+    private static class Workers
+    {
+        private final ThreadPoolExecutor pool;
+
+        private Workers(final int threads)
+        {
+            final ThreadGroup group = Thread.currentThread().getThreadGroup();
+            final String name = Thread.currentThread().getName() + "-worker-";
+            final AtomicInteger count = new AtomicInteger();
+
+            pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r ->
+            {
+                final Thread thread = new Thread(group, () ->
+                {
+                    // our own client, we recycle it as long as the worker lives
+                    final XltWebClient client = new XltWebClient();
+                    Session.getCurrent().removeShutdownListener(client);
+                    HttpRequest.setDefaultWebClient(client);
+                    WORKER_CLIENT.set(client);
+                    try
+                    {
+                        r.run();
+                    }
+                    finally
+                    {
+                        WORKER_CLIENT.remove();
+                        client.close();
+                    }
+                }, name + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            pool.allowCoreThreadTimeOut(true);
+        }
+
+        /**
+         * Adjusts the number of workers when the test wants another one
+         *
+         * @param threads
+         *            the number of workers
+         */
+        private void resize(final int threads)
+        {
+            if (threads > pool.getMaximumPoolSize())
+            {
+                pool.setMaximumPoolSize(threads);
+                pool.setCorePoolSize(threads);
+            }
+            else if (threads < pool.getMaximumPoolSize())
+            {
+                pool.setCorePoolSize(threads);
+                pool.setMaximumPoolSize(threads);
+            }
+        }
+    }
+
     /**
      * Helper class to get the result out of the scope of the AbstractAction
      *
@@ -131,14 +513,20 @@ public class Actions
         @Override
         public void run() throws Throwable
         {
+            // what the action costs us, not the server
+            final ClientCost cost = ClientCost.start();
+
             try
             {
                 super.run();
             }
             finally
             {
+                final String timerName = RESTTestCase.getSiteSpecificName(getTimerName(), Context.getSite().id);
+                cost.stopAndLog(timerName);
+
                 // add an empty "page" as the result of this action
-                SessionImpl.getCurrent().getRequestHistory().add(RESTTestCase.getSiteSpecificName(getTimerName(), Context.getSite().id));
+                SessionImpl.getCurrent().getRequestHistory().add(timerName);
             }
         }
     }
@@ -0,0 +1,265 @@
+package com.xceptance.loadtest.api.util;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.xceptance.loadtest.api.data.CustomValues;
+import com.xceptance.loadtest.api.json.JsonPaths;
+import com.xceptance.xlt.api.engine.DataManager;
+import com.xceptance.xlt.api.engine.Session;
+import com.xceptance.xlt.api.util.XltLogger;
+import com.xceptance.xlt.api.util.XltProperties;
+import com.xceptance.xlt.engine.SessionImpl;
+
+/**
+ * Watches whether the agent itself is the bottleneck. An overloaded agent fires its requests late
+ * and measures its own delays as response time, so we want to see that in the report.
+ * <p>
+ * A tick at a fixed rate samples how late it fires itself, the share of time spent in garbage
+ * collection, the CPU load of the process, and the number of runnable threads, and reports them as
+ * the custom values <code>agent.lag</code> (ms), <code>agent.gc</code> (%), <code>agent.cpu</code>
+ * (%), and <code>agent.threads.runnable</code>. When lag, GC, or CPU exceed their limits, the agent
+ * is saturated: <code>agent.saturated</code> is 1 for these ticks, 0 otherwise, and the events
+ * <i>Agent saturated</i> and <i>Agent recovered</i> mark start and end. Runnable threads are only
+ * reported, threads blocked in socket reads count as runnable too. Every tick also reports the hits
+ * and misses of the agent-wide {@link JsonPaths} cache since the last tick.
+ * <p>
+ * Started once per agent by the first test, enabled by default, see <code>general.watchdog</code>
+ * in project.properties. The watchdog runs in a thread group of its own, so XLT gives it a session
+ * of its own named <i>AgentWatchdog</i>, and nothing it reports is attributed to a test case of a
+ * user.
+ *
+ * @author agent
+ */
+public class AgentWatchdog
+{
+    /**
+     * Do we watch at all
+     */
+    private static final boolean ENABLED = XltProperties.getInstance().getProperty("general.watchdog", true);
+
+    /**
+     * Started already
+     */
+    private static final AtomicBoolean STARTED = new AtomicBoolean();
+
+    /**
+     * The name of our own session, this is what the report shows for our events
+     */
+    private static final String NAME = "AgentWatchdog";
+
+    /**
+     * The time between two ticks in ms
+     */
+    private final long interval;
+
+    /**
+     * Lag in ms that means we are saturated
+     */
+    private final long lagLimit;
+
+    /**
+     * Process CPU load in percent that means we are saturated
+     */
+    private final int cpuLimit;
+
+    /**
+     * Share of time in GC in percent that means we are saturated
+     */
+    private final int gcLimit;
+
+    private final List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+    /**
+     * The process CPU load is a HotSpot extension, null if we don't have it
+     */
+    private final com.sun.management.OperatingSystemMXBean os;
+
+    /**
+     * When the first tick was due, ns
+     */
+    private long start;
+
+    /**
+     * Ticks so far
+     */
+    private long ticks;
+
+    /**
+     * GC time at the last tick, ms
+     */
+    private long gcTime;
+
+    /**
+     * Since when we are saturated, ms, negative if we are not
+     */
+    private long saturatedSince = -1;
+
+    private AgentWatchdog()
+    {
+        final XltProperties properties = XltProperties.getInstance();
+
+        this.interval = Math.max(100, properties.getProperty("general.watchdog.interval", 1000));
+        this.lagLimit = properties.getProperty("general.watchdog.lag", 100);
+        this.cpuLimit = properties.getProperty("general.watchdog.cpu", 90);
+        this.gcLimit = properties.getProperty("general.watchdog.gc", 10);
+
+        final OperatingSystemMXBean bean = ManagementFactory.getOperatingSystemMXBean();
+        this.os = bean instanceof com.sun.management.OperatingSystemMXBean ? (com.sun.management.OperatingSystemMXBean) bean : null;
+
+        this.gcTime = gcTime();
+    }
+
+    /**
+     * Starts watching, only the first call does something. We run in a thread group of our own
+     * and hence report through a session of our own, not the one of the user that started us.
+     */
+    public static void start()
+    {
+        if (!ENABLED || STARTED.get() || !STARTED.compareAndSet(false, true))
+        {
+            return;
+        }
+
+        final AgentWatchdog watchdog = new AgentWatchdog();
+
+        // not below the thread group of the user that happens to start us
+        ThreadGroup root = Thread.currentThread().getThreadGroup();
+        while (root.getParent() != null)
+        {
+            root = root.getParent();
+        }
+        final ThreadGroup group = new ThreadGroup(root, NAME);
+
+        final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r ->
+        {
+            final Thread thread = new Thread(group, () ->
+            {
+                // XLT sets up a session per thread group, that one is ours
+                SessionImpl.getCurrent().setUserName(NAME);
+                r.run();
+            }, NAME);
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        watchdog.start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(watchdog.interval);
+        scheduler.scheduleAtFixedRate(watchdog::tick, watchdog.interval, watchdog.interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Takes a sample, never throws, that would end the schedule
+     */
+    private void tick()
+    {
+        try
+        {
+            sample();
+        }
+        catch (final Throwable e)
+        {
+            XltLogger.runTimeLogger.warn("Agent watchdog could not take a sample", e);
+        }
+    }
+
+    /**
+     * Takes a sample and reports it
+     */
+    private void sample()
+    {
+        // a fixed rate tick knows when it was due, late ticks are run right away to catch up
+        final long due = start + TimeUnit.MILLISECONDS.toNanos(interval) * ticks++;
+        final long lag = Math.max(0, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - due));
+
+        final long currentGcTime = gcTime();
+        final long gc = Math.max(0, (currentGcTime - gcTime) * 100 / interval);
+        gcTime = currentGcTime;
+
+        final double load = os != null ? os.getProcessCpuLoad() : -1;
+        final long cpu = load >= 0 ? Math.round(load * 100) : -1;
+
+        CustomValues.log("agent.lag", lag);
+        CustomValues.log("agent.gc", gc);
+        if (cpu >= 0)
+        {
+            CustomValues.log("agent.cpu", cpu);
+        }
+        CustomValues.log("agent.threads.runnable", runnableThreads());
+
+        // agent-wide counters of the shared caches, per tick
+        JsonPaths.logStatistics();
+
+        // are we the bottleneck
+        final StringBuilder reasons = new StringBuilder();
+        if (lag >= lagLimit)
+        {
+            reasons.append("lag ").append(lag).append(" ms ");
+        }
+        if (gc >= gcLimit)
+        {
+            reasons.append("gc ").append(gc).append("% ");
+        }
+        if (cpu >= cpuLimit)
+        {
+            reasons.append("cpu ").append(cpu).append("% ");
+        }
+
+        final boolean saturated = reasons.length() > 0;
+        CustomValues.log("agent.saturated", saturated ? 1 : 0);
+
+        final DataManager dataManager = Session.getCurrent().getDataManager();
+        final long now = System.currentTimeMillis();
+        if (saturated && saturatedSince < 0)
+        {
+            saturatedSince = now;
+            dataManager.logEvent("Agent saturated", reasons.toString().trim());
+        }
+        else if (!saturated && saturatedSince >= 0)
+        {
+            dataManager.logEvent("Agent recovered", "after " + (now - saturatedSince) + " ms");
+            saturatedSince = -1;
+        }
+    }
+
+    /**
+     * The time of all collectors so far, ms
+     */
+    private long gcTime()
+    {
+        long total = 0;
+        for (final GarbageCollectorMXBean collector : collectors)
+        {
+            // -1 if the collector does not tell
+            total += Math.max(0, collector.getCollectionTime());
+        }
+
+        return total;
+    }
+
+    /**
+     * The threads that are runnable now, no stack traces, these are expensive
+     */
+    private int runnableThreads()
+    {
+        int count = 0;
+        for (final ThreadInfo info : threads.getThreadInfo(threads.getAllThreadIds(), 0))
+        {
+            if (info != null && info.getThreadState() == Thread.State.RUNNABLE)
+            {
+                count++;
+            }
+        }
+
+        return count;
+    }
+}
@@ -0,0 +1,173 @@
+package com.xceptance.loadtest.api.util;
+
+import com.xceptance.xlt.api.util.XltRandom;
+
+/**
+ * Vose's alias method for picking an index according to integer weights in constant time and
+ * without allocation. The table is exact, it uses the total weight as its unit and hence does not
+ * suffer from floating point rounding. {@link XltRandom} is the only source of randomness, so runs
+ * with a fixed seed stay reproducible, see {@link RandomScope} for the one exception.
+ *
+ * @author agent
+ */
+public class AliasTable
+{
+    /**
+     * The number of columns aka weights
+     */
+    private final int size;
+
+    /**
+     * The sum of all weights
+     */
+    private final int totalWeight;
+
+    /**
+     * The share of a column that belongs to the column itself, in units of the total weight
+     */
+    private final int[] probability;
+
+    /**
+     * Who owns the rest of a column
+     */
+    private final int[] alias;
+
+    /**
+     * Set up the table for the given weights.
+     *
+     * @param weights
+     *            the weights, none of them negative, the sum has to fit into an int
+     */
+    public AliasTable(final int[] weights)
+    {
+        this.size = weights.length;
+        this.probability = new int[size];
+        this.alias = new int[size];
+
+        long total = 0;
+        for (final int weight : weights)
+        {
+            if (weight < 0)
+            {
+                throw new IllegalArgumentException("Weights must not be negative: " + weight);
+            }
+            total += weight;
+        }
+        if (total > Integer.MAX_VALUE)
+        {
+            throw new IllegalArgumentException("The sum of all weights is too large: " + total);
+        }
+        this.totalWeight = (int) total;
+
+        if (totalWeight == 0)
+        {
+            return;
+        }
+
+        // scale each weight by the number of columns, so that a full column has the total weight
+        final long[] scaled = new long[size];
+
+        // small and large as two stacks sharing one array, small from the left, large from the right
+        final int[] work = new int[size];
+        int small = 0;
+        int large = size;
+
+        for (int i = 0; i < size; i++)
+        {
+            scaled[i] = (long) weights[i] * size;
+            if (scaled[i] < totalWeight)
+            {
+                work[small++] = i;
+            }
+            else
+            {
+                work[--large] = i;
+            }
+        }
+
+        while (small > 0 && large < size)
+        {
+            final int less = work[--small];
+            final int more = work[large++];
+
+            probability[less] = (int) scaled[less];
+            alias[less] = more;
+
+            scaled[more] -= totalWeight - scaled[less];
+            if (scaled[more] < totalWeight)
+            {
+                work[small++] = more;
+            }
+            else
+            {
+                work[--large] = more;
+            }
+        }
+
+        // the rest is full, the arithmetic is exact, so this is just the remaining large ones
+        while (large < size)
+        {
+            final int i = work[large++];
+            probability[i] = totalWeight;
+            alias[i] = i;
+        }
+        while (small > 0)
+        {
+            final int i = work[--small];
+            probability[i] = totalWeight;
+            alias[i] = i;
+        }
+    }
+
+    /**
+     * Returns a random index according to the weights.
+     *
+     * @return the index or -1 if there is nothing to pick, because all weights are zero
+     */
+    public int next()
+    {
+        if (totalWeight == 0)
+        {
+            return -1;
+        }
+
+        final int column;
+        final int coin;
+
+        final long bound = (long) size * totalWeight;
+        if (bound <= Integer.MAX_VALUE)
+        {
+            // one draw is enough for column and coin
+            final int r = RandomScope.nextInt((int) bound);
+            column = r / totalWeight;
+            coin = r - column * totalWeight;
+        }
+        else
+        {
+            column = RandomScope.nextInt(size);
+            coin = RandomScope.nextInt(totalWeight);
+        }
+
+        return coin < probability[column] ? column : alias[column];
+    }
+
+    /**
+     * Returns the sum of all weights
+     *
+     * @return the total weight
+     */
+    public int totalWeight()
+    {
+        return totalWeight;
+    }
+
+    /**
+     * Returns the number of weights
+     *
+     * @return the size of the table
+     */
+    public int size()
+    {
+        return size;
+    }
+}
@@ -1,8 +1,10 @@
 package com.xceptance.loadtest.api.util;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.Properties;
+import java.util.Random;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.junit.Assert;
@@ -10,12 +12,14 @@ import org.junit.Assert;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.xceptance.loadtest.api.configuration.ConfigurationBuilder;
+import com.xceptance.loadtest.api.configuration.ConfigurationSnapshot;
 import com.xceptance.loadtest.api.configuration.DefaultConfiguration;
 import com.xceptance.loadtest.api.configuration.LTProperties;
+import com.xceptance.loadtest.api.configuration.PropertyTable;
 import com.xceptance.loadtest.api.configuration.YamlPropertiesBuilder;
 import com.xceptance.loadtest.api.data.Account;
+import com.xceptance.loadtest.api.data.AccountPool;
 import com.xceptance.loadtest.api.data.CustomTimer;
-import com.xceptance.loadtest.api.data.ExclusiveDataSupplier;
 import com.xceptance.loadtest.api.data.Site;
 import com.xceptance.loadtest.rest.configuration.Configuration;
 import com.xceptance.loadtest.rest.data.TestData;
@@ -33,10 +37,23 @@ import com.xceptance.xlt.common.XltConstants;
 public class Context
 {
     /**
-     * Known test contexts.
+     * Known test contexts by the thread group of the user, the fallback for threads that don't
+     * have their context at hand.
      */
     private static final Map<ThreadGroup, Context> CONTEXTS = new ConcurrentHashMap<>(101);
 
+    /**
+     * The context of the current thread, set for the user thread when the context is created and
+     * for any other thread when it is attached. That is what we look at first, because it is way
+     * cheaper than hashing the thread group on every access.
+     */
+    private static final ThreadLocal<Context> CURRENT = new ThreadLocal<>();
+
+    /**
+     * Resolved configurations per test class, user, and site
+     */
+    private static final Map<String, ConfigurationSnapshot<Configuration>> SNAPSHOTS = new ConcurrentHashMap<>(101);
+
     /**
      * The Configuration for the current thread, wrapped and buffered from the properties.
      */
@@ -47,6 +64,11 @@ public class Context
      */
     public final TestData data = new TestData();
 
+    /**
+     * Validations of this test execution running elsewhere, see {@link DeferredValidations}
+     */
+    final List<DeferredValidations.Pending> deferredValidations = new ArrayList<>();
+
     // Our cached GSON parser and builder
     private Gson gson;
 
@@ -69,6 +91,52 @@ public class Context
                     final String userName,
                     final String fullTestClassName,
                     final Site site)
+    {
+        // the configuration only depends on the test, the user, and the site, so we resolve it
+        // once and get a copy with fresh random values for every execution
+        final String key = fullTestClassName + "|" + userName + "|" + site.id;
+
+        ConfigurationSnapshot<Configuration> snapshot = SNAPSHOTS.get(key);
+        if (snapshot == null)
+        {
+            snapshot = SNAPSHOTS.computeIfAbsent(key, k -> buildConfiguration(k, xltProperties, userName, fullTestClassName, site));
+        }
+        this.configuration = snapshot.get();
+
+        // the agent-wide defaults, built by the first test before it runs any action
+        defaultConfiguration();
+
+        // our own properties, they share all layers with the snapshot, but what this execution
+        // adds stays with it
+        this.configuration.properties = new LTProperties(snapshot.properties());
+
+        // get XLT all our look up data so it is up to date for this execution, XLT has only one
+        // set of properties for all users
+        XltProperties.getInstance().setProperties(snapshot.properties().getProperties());
+
+        this.data.setSite(site);
+    }
+
+    /**
+     * Builds the configuration for a test, user, and site combination.
+     *
+     * @param key
+     *            the test, user, and site combination
+     * @param xltProperties
+     *            the initial set of XLT properties
+     * @param userName
+     *            the currently running user
+     * @param fullTestClassName
+     *            test name
+     * @param site
+     *            site context
+     * @return the configuration snapshot to hand out copies from
+     */
+    private static ConfigurationSnapshot<Configuration> buildConfiguration(final String key,
+                                                                           final XltProperties xltProperties,
+                                                                           final String userName,
+                                                                           final String fullTestClassName,
+                                                                           final Site site)
     {
         // where we get the props from later in this code
         final LTProperties totalProperties = new LTProperties(userName, fullTestClassName, site.id);
@@ -76,6 +144,9 @@ public class Context
         // xlt properties come first aka the last line of defense for the later look up
         totalProperties.addProperties(Optional.of(xltProperties.getProperties()));
 
+        // that's what we want
+        final Configuration configuration;
+
         // initialize the config and log the time needed
         final CustomTimer cdl = CustomTimer.start("config.build.testcase");
         {
@@ -88,10 +159,10 @@ public class Context
                 // don't try empty
                 if (fileName.trim().length() > 0)
                 {
-                    final Optional<Properties> newProperties = YamlPropertiesBuilder.build(site.id, fileName);
+                    final Optional<PropertyTable> newProperties = YamlPropertiesBuilder.build(site.id, fileName);
                     if (newProperties.isPresent())
                     {
-                        totalProperties.addProperties(newProperties);
+                        totalProperties.addProperties(newProperties.get());
                     }
                 }
             }
@@ -103,8 +174,8 @@ public class Context
                 // don't try empty
                 if (fileName.trim().length() > 0)
                 {
-                    final Optional<Properties> newProperties = YamlPropertiesBuilder.buildWithFallback(site, fileName);
-                    totalProperties.addProperties(newProperties);
+                    final Optional<PropertyTable> newProperties = YamlPropertiesBuilder.buildWithFallback(site, fileName);
+                    newProperties.ifPresent(totalProperties::addProperties);
                 }
             }
 
@@ -112,17 +183,16 @@ public class Context
             Log.debugWhenDev("{0}", totalProperties);
 
             // get XLT all our look up data so it is also up to date
-            XltProperties.getInstance().setProperties(totalProperties.properties);
+            XltProperties.getInstance().setProperties(totalProperties.getProperties());
 
             // now, we can do what we always do, because all YAML stuff is available as regular
-            // properties
-            this.configuration = new ConfigurationBuilder(totalProperties).build(Configuration.class);
+            // properties, the random values of the template are never used, so don't draw them
+            // from the random numbers of the user
+            configuration = RandomScope.dedicated(new Random(key.hashCode()), () -> new ConfigurationBuilder(totalProperties).build(Configuration.class));
         }
         cdl.stopAndLog();
 
-        // keep them for later
-        this.configuration.properties = totalProperties;
-        this.data.setSite(site);
+        return new ConfigurationSnapshot<>(configuration, totalProperties);
     }
 
     /**
@@ -142,7 +212,12 @@ public class Context
      */
     public static Context get()
     {
-        final Context context = CONTEXTS.get(Thread.currentThread().getThreadGroup());
+        Context context = CURRENT.get();
+        if (context == null)
+        {
+            // a helper thread of the user we don't know yet
+            context = CONTEXTS.get(Thread.currentThread().getThreadGroup());
+        }
 
         if (context == null)
         {
@@ -153,6 +228,26 @@ public class Context
         return context;
     }
 
+    /**
+     * Makes the context of a user available to a helper thread of the user, such as a fan-out
+     * worker, without the thread group lookup.
+     *
+     * @param context
+     *            the context of the user
+     */
+    static void attach(final Context context)
+    {
+        CURRENT.set(context);
+    }
+
+    /**
+     * Removes the context attached to the current thread
+     */
+    static void detach()
+    {
+        CURRENT.remove();
+    }
+
     /**
      * Adds a new Context instance for the current Thread to the map. This Method is used by the
      * AbstractTestCase and therefore won't need to be called manually
@@ -165,9 +260,10 @@ public class Context
     public static void createContext(final XltProperties xltProperties, final String userName, final String fullTestClassName, final Site site)
     {
         // NOTE: previous added Context instances for this Thread will be ignored
-        CONTEXTS.put(
-                        Thread.currentThread().getThreadGroup(),
-                        new Context(xltProperties, userName, fullTestClassName, site));
+        final Context context = new Context(xltProperties, userName, fullTestClassName, site);
+
+        CONTEXTS.put(Thread.currentThread().getThreadGroup(), context);
+        CURRENT.set(context);
     }
 
     /**
@@ -187,9 +283,7 @@ public class Context
 
         // remove the context finally
         CONTEXTS.remove(Thread.currentThread().getThreadGroup());
-
-        // destroy default as well to avoid problems with the random pool
-        defaultConfiguration.remove();
+        CURRENT.remove();
     }
 
     /**
@@ -249,27 +343,87 @@ public class Context
     // Load Default Configuration
     /////////////////////////////////////////////////////////////////
 
-    public static ThreadLocal<DefaultConfiguration> defaultConfiguration = new ThreadLocal<DefaultConfiguration>()
-    {
-        private DefaultConfiguration defaultConfiguration;
+    /**
+     * The agent-wide default configuration, built once and never changed afterwards
+     */
+    private static volatile DefaultConfiguration sharedDefaultConfiguration;
 
+    /**
+     * Why the default configuration could not be built, we don't try again
+     */
+    private static Throwable defaultConfigurationFailure;
+
+    /**
+     * The default configuration as it used to be available
+     *
+     * @deprecated use {@link #defaultConfiguration()}, there is one per agent, so there is nothing
+     *             to set or remove
+     */
+    @Deprecated
+    public static final ThreadLocal<DefaultConfiguration> defaultConfiguration = new ThreadLocal<DefaultConfiguration>()
+    {
         @Override
         public DefaultConfiguration get()
         {
-            if (defaultConfiguration == null)
-            {
-                defaultConfiguration = Context.loadDefaultConfiguration();
-            }
-            return defaultConfiguration;
+            return defaultConfiguration();
+        }
+
+        @Override
+        public void set(final DefaultConfiguration value)
+        {
+            XltLogger.runTimeLogger.warn("The default configuration is shared by all users and cannot be set, ignored");
         }
 
         @Override
         public void remove()
         {
-            defaultConfiguration = null;
+            // built once, nothing to remove
         }
     };
 
+    /**
+     * Returns the default non test case dependent configuration of this agent. The first test
+     * builds it when it creates its context, so it is ready before any action asks for it. The
+     * configuration types draw their random values when they are built, so they draw from a
+     * random of their own and leave the random numbers of that test alone. When the build fails,
+     * every later call fails with the same cause.
+     *
+     * @return the default configuration, don't change it
+     */
+    public static DefaultConfiguration defaultConfiguration()
+    {
+        final DefaultConfiguration current = sharedDefaultConfiguration;
+        if (current != null)
+        {
+            return current;
+        }
+
+        synchronized (Context.class)
+        {
+            if (sharedDefaultConfiguration == null)
+            {
+                if (defaultConfigurationFailure == null)
+                {
+                    try
+                    {
+                        sharedDefaultConfiguration = RandomScope.dedicated(new Random(DefaultConfiguration.class.getName().hashCode()), Context::loadDefaultConfiguration);
+                    }
+                    catch (final RuntimeException | Error e)
+                    {
+                        defaultConfigurationFailure = e;
+                        throw e;
+                    }
+                }
+                else
+                {
+                    throw new AssertionError("Default configuration not available: " + defaultConfigurationFailure.getMessage(), defaultConfigurationFailure);
+                }
+            }
+
+            return sharedDefaultConfiguration;
+        }
+    }
+
     /**
      * Loads the default non test case dependent configuration. Usually very short. Helps to do
      * something outside of the regular context
@@ -278,9 +432,6 @@ public class Context
      */
     private static DefaultConfiguration loadDefaultConfiguration()
     {
-        // save random seed
-        final long savedSeed = XltRandom.getSeed();
-
         // where we get the props from later in this code
         final LTProperties totalProperties = new LTProperties("", "", "");
 
@@ -302,10 +453,10 @@ public class Context
                 // don't try empty
                 if (fileName.trim().length() > 0)
                 {
-                    final Optional<Properties> newProperties = YamlPropertiesBuilder.build("DEFAULTCONFIGUATION", fileName);
+                    final Optional<PropertyTable> newProperties = YamlPropertiesBuilder.build("DEFAULTCONFIGUATION", fileName);
                     if (newProperties.isPresent())
                     {
-                        totalProperties.addProperties(newProperties);
+                        totalProperties.addProperties(newProperties.get());
                     }
                 }
             }
@@ -316,9 +467,6 @@ public class Context
         }
         cdl.stopAndLog();
 
-        // restore seed for proper reproducibility
-        XltRandom.setSeed(savedSeed);
-
         // keep them for later
         return defaultConfiguaration;
     }
@@ -329,18 +477,20 @@ public class Context
      * test users.
      *
      * If you want to reuse the account after the test has finished, it needs to be released with
-     * the releaseExclusiveAccount() method.
+     * the releaseExclusiveAccount() method. If not, it returns to the pool when the transaction
+     * ends or its lease expires, see {@link DefaultConfiguration#accountLeaseTimeout}.
      *
      * @return an Account
      */
     public static Account getExclusiveAccountFromFile()
     {
+        final DefaultConfiguration defaults = defaultConfiguration();
+
         try
         {
-            final Account account = ExclusiveDataSupplier.getInstance("accounts.csv", Account.ACCOUNT_PARSER).getRandom();
-
-            Assert.assertNotNull("No Account available in accounts.csv for site " + getSite(), account);
-            return account;
+            return AccountPool.forSite(getSite()).acquire(
+                            defaults.accountLeaseTimeout.value * 1000L,
+                            defaults.accountWaitTimeout.value * 1000L);
         }
         catch (final Exception e)
         {
@@ -357,15 +507,7 @@ public class Context
      */
     public static void releaseExclusiveAccount(final Account account)
     {
-        try
-        {
-            ExclusiveDataSupplier.getInstance("accounts.csv", Account.ACCOUNT_PARSER).add(account);
-        }
-        catch (final Exception e)
-        {
-            Assert.fail("Could not release account to accounts.csv for site " + getSite());
-        }
-
+        AccountPool.forSite(getSite()).release(account);
     }
 
     /**
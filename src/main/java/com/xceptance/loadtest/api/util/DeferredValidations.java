@@ -0,0 +1,162 @@
+package com.xceptance.loadtest.api.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.xceptance.xlt.api.util.XltProperties;
+
+/**
+ * Validations that don't run on the user thread but on a small agent-wide pool, enabled by
+ * <code>general.deferredValidation = true</code>. The user can fire its next request right away,
+ * the results are collected and {@link #await()} at the end of the test fails the transaction if
+ * one of them failed.
+ * <p>
+ * The pool is bounded. When it cannot keep up, the user runs the validation itself, which slows it
+ * down as if there was no pool, but never lets the validations pile up.
+ * <p>
+ * Like the pool, the switch is agent-wide and read from the XLT properties once, it cannot be set
+ * per test case. When the test fails before {@link #await()}, the validations still pending are
+ * dropped unchecked, the transaction has failed already and reports the first failure only.
+ *
+ * @author agent
+ */
+public class DeferredValidations
+{
+    /**
+     * Do we defer validations at all
+     */
+    private static final boolean ENABLED = XltProperties.getInstance().getProperty("general.deferredValidation", false);
+
+    /**
+     * The threads of the pool, the number of cores by default
+     */
+    private static final int THREADS = XltProperties.getInstance().getProperty("general.deferredValidation.threads", Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Validations waiting for a thread before the users have to run them themselves
+     */
+    private static final int QUEUE = XltProperties.getInstance().getProperty("general.deferredValidation.queue", 1000);
+
+    /**
+     * The shared pool, threads go away when there is nothing to do
+     */
+    private static final ThreadPoolExecutor POOL;
+
+    static
+    {
+        final AtomicInteger count = new AtomicInteger();
+
+        // not below the thread group of the user that happens to submit first, XLT would see us
+        // as part of its session and the group of the user would never go away
+        ThreadGroup root = Thread.currentThread().getThreadGroup();
+        while (root.getParent() != null)
+        {
+            root = root.getParent();
+        }
+        final ThreadGroup group = new ThreadGroup(root, "DeferredValidation");
+
+        POOL = new ThreadPoolExecutor(THREADS, THREADS, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(QUEUE), r ->
+        {
+            final Thread thread = new Thread(group, r, "DeferredValidation-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+        POOL.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Do we defer validations
+     *
+     * @return true if validations are to be handed to the pool
+     */
+    public static boolean isEnabled()
+    {
+        return ENABLED;
+    }
+
+    /**
+     * Hands a validation to the pool. It must not need the context or session of the user, copy
+     * all it needs. The pool threads have a thread group of their own, so they don't find either.
+     *
+     * @param name
+     *            the name of the action, for the failure message
+     * @param validation
+     *            the validation
+     */
+    public static void submit(final String name, final Runnable validation)
+    {
+        final Future<?> future = POOL.submit(validation);
+
+        final List<Pending> pending = Context.get().deferredValidations;
+        synchronized (pending)
+        {
+            pending.add(new Pending(name, future));
+        }
+    }
+
+    /**
+     * Waits for all validations of the current test and fails with the first failed one in the
+     * order they have been handed in.
+     *
+     * @throws Throwable
+     *             the failure of the validation
+     */
+    public static void await() throws Throwable
+    {
+        final List<Pending> pending = Context.get().deferredValidations;
+
+        final List<Pending> all;
+        synchronized (pending)
+        {
+            if (pending.isEmpty())
+            {
+                return;
+            }
+            all = new ArrayList<>(pending);
+            pending.clear();
+        }
+
+        Throwable failure = null;
+        for (final Pending p : all)
+        {
+            try
+            {
+                p.future.get();
+            }
+            catch (final ExecutionException e)
+            {
+                if (failure == null)
+                {
+                    failure = new AssertionError("Deferred validation of " + p.name + " failed: " + e.getCause().getMessage(), e.getCause());
+                }
+            }
+        }
+
+        if (failure != null)
+        {
+            throw failure;
+        }
+    }
+
+    /**
+     * A validation we wait for
+     */
+    static class Pending
+    {
+        private final String name;
+
+        private final Future<?> future;
+
+        private Pending(final String name, final Future<?> future)
+        {
+            this.name = name;
+            this.future = future;
+        }
+    }
+}
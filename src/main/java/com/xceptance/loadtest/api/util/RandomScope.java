@@ -0,0 +1,93 @@
+package com.xceptance.loadtest.api.util;
+
+import java.util.Random;
+import java.util.function.Supplier;
+
+import com.xceptance.xlt.api.util.XltRandom;
+
+/**
+ * The source of the random values of the configuration types. Usually that is {@link XltRandom},
+ * so the values follow the seed of the test execution. While a configuration is built that only
+ * serves as template or as agent-wide default, a dedicated random takes over, so the build does not
+ * use up random numbers of the user and a rerun with the same seed draws the same values.
+ *
+ * @author agent
+ */
+public class RandomScope
+{
+    /**
+     * The random that takes over for the current thread, null if XltRandom is in charge
+     */
+    private static final ThreadLocal<Random> DEDICATED = new ThreadLocal<>();
+
+    /**
+     * Runs the supplier with the given random instead of XltRandom for the current thread.
+     *
+     * @param random
+     *            the random to draw from
+     * @param supplier
+     *            what to run
+     * @return the result of the supplier
+     */
+    public static <T> T dedicated(final Random random, final Supplier<T> supplier)
+    {
+        final Random previous = DEDICATED.get();
+        DEDICATED.set(random);
+        try
+        {
+            return supplier.get();
+        }
+        finally
+        {
+            if (previous == null)
+            {
+                DEDICATED.remove();
+            }
+            else
+            {
+                DEDICATED.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Returns a random value between 0 (inclusive) and the bound (exclusive)
+     *
+     * @param bound
+     *            the upper bound, exclusive
+     * @return the random value
+     */
+    public static int nextInt(final int bound)
+    {
+        final Random random = DEDICATED.get();
+        return random == null ? XltRandom.nextInt(bound) : random.nextInt(bound);
+    }
+
+    /**
+     * Returns a random value between min and max, both inclusive
+     *
+     * @param min
+     *            the lower bound
+     * @param max
+     *            the upper bound
+     * @return the random value
+     */
+    public static int nextInt(final int min, final int max)
+    {
+        final Random random = DEDICATED.get();
+        return random == null ? XltRandom.nextInt(min, max) : (int) (min + (long) (random.nextDouble() * ((long) max - min + 1)));
+    }
+
+    /**
+     * Returns true with the given probability
+     *
+     * @param probability
+     *            the probability in percent
+     * @return true or false
+     */
+    public static boolean nextBoolean(final int probability)
+    {
+        final Random random = DEDICATED.get();
+        return random == null ? XltRandom.nextBoolean(probability) : random.nextInt(100) < probability;
+    }
+}
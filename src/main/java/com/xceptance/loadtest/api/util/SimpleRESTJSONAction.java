@@ -1,7 +1,9 @@
 package com.xceptance.loadtest.api.util;
 
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.lang3.StringUtils;
 import org.junit.Assert;
@@ -9,7 +11,11 @@ import org.junit.Assert;
 import org.htmlunit.HttpMethod;
 import org.htmlunit.util.NameValuePair;
 import com.jayway.jsonpath.JsonPath;
-import com.jayway.jsonpath.ReadContext;
+import com.xceptance.loadtest.api.data.ClientCost;
+import com.xceptance.loadtest.api.json.JsonPathExtractor;
+import com.xceptance.loadtest.api.json.JsonPaths;
+import com.xceptance.loadtest.api.json.JsonResponses;
+import com.xceptance.loadtest.api.net.StatusCodeMatcher;
 import com.xceptance.loadtest.api.tests.RESTTestCase;
 import com.xceptance.xlt.api.actions.AbstractAction;
 import com.xceptance.xlt.engine.SessionImpl;
@@ -30,16 +36,25 @@ public class SimpleRESTJSONAction extends AbstractAction
     private HttpResponse response;
 
     /**
-     * String containing a RegExp pattern which is checked on against the status code of the
-     * response. Accepts all 20x responses by default.
+     * The RegExp pattern, compiled once, which is checked on against the status code of the
+     * response. Accepts all 20x responses by default, null if the status shall not be checked.
      */
-    private String statusPattern = "20.";
+    private StatusCodeMatcher statusMatcher = StatusCodeMatcher.of("20.");
 
     /** List of all validations which should be performed on the response. */
-    private final List<Validation> validations = new ArrayList<>();
+    private List<Validation> validations = new ArrayList<>();
 
     /** List of all data extractions which should be performed on the response. */
-    private final List<StoragePrompt> storagePrompts = new ArrayList<>();
+    private List<StoragePrompt> storagePrompts = new ArrayList<>();
+
+    /** All paths of validations and data extractions, compiled for a single pass over the response. */
+    private JsonPathExtractor extractor;
+
+    /** The name of the action without site id, to look up the validation policy. */
+    private String validationName;
+
+    /** Validations and storage prompts are the ones of a template, copy them before changing them. */
+    private boolean shared;
 
     /** The request to be fired. */
     private final HttpRequest httpRequest = new HttpRequest();
@@ -59,6 +74,70 @@ public class SimpleRESTJSONAction extends AbstractAction
         handleTimerName(timerName);
     }
 
+    /**
+     * Sets up an action from a template, we share everything that does not change per call.
+     *
+     * @param template
+     *            the template to bind
+     */
+    private SimpleRESTJSONAction(final Template template)
+    {
+        // Hence we do not need the page of the previous action, we don't need to provide it
+        super(null, null);
+
+        final String timerName = template.timerName(Context.getSite().id);
+        this.validationName = template.timerName;
+        this.setTimerName(timerName);
+        httpRequest.timerName(timerName);
+
+        if (template.baseUrl != null)
+        {
+            httpRequest.baseUrl(template.baseUrl);
+        }
+        if (template.relativeUrl != null)
+        {
+            httpRequest.relativeUrl(template.relativeUrl);
+        }
+        if (template.method != null)
+        {
+            httpRequest.method(template.method);
+        }
+        if (template.body != null)
+        {
+            httpRequest.body(template.body);
+        }
+
+        // one by one, the request must not hold on to the lists of the template
+        for (final NameValuePair header : template.headers)
+        {
+            httpRequest.header(header.getName(), header.getValue());
+        }
+        for (final NameValuePair param : template.params)
+        {
+            httpRequest.param(param.getName(), param.getValue());
+        }
+
+        this.statusMatcher = template.statusMatcher;
+        this.validations = template.validations;
+        this.storagePrompts = template.storagePrompts;
+        this.extractor = template.extractor();
+        this.shared = true;
+    }
+
+    /**
+     * Starts a new template for actions of this kind. A template is immutable, every change
+     * returns a new template, hence it can be defined once and kept as static value. Bind it to
+     * get an action and add only what differs per call.
+     *
+     * @param timerName
+     *            the timer name without the site id
+     * @return an empty template
+     */
+    public static Template template(final String timerName)
+    {
+        return new Template(timerName);
+    }
+
     /**
      * Take care of the timer name and add the Site ID if desired.
      *
@@ -71,6 +150,7 @@ public class SimpleRESTJSONAction extends AbstractAction
         final String siteId = Context.getSite().id;
         final String newTimerName = RESTTestCase.getSiteSpecificName(timerName, siteId);
 
+        this.validationName = timerName;
         this.setTimerName(newTimerName);
         httpRequest.timerName(newTimerName);
     }
@@ -219,47 +299,109 @@ public class SimpleRESTJSONAction extends AbstractAction
     protected void postValidate() throws Exception
     {
         Assert.assertNotNull("Response not received", response);
-        if (StringUtils.isNotBlank(statusPattern))
+        if (statusMatcher != null && !statusMatcher.matches(response.getStatusCode()))
         {
-            Assert.assertTrue("Response code does not match expected pattern " + statusPattern, String.valueOf(response.getStatusCode()).matches(statusPattern));
+            Assert.fail("Response code does not match expected pattern " + statusMatcher);
         }
 
-        ReadContext ctx = null;
-        if (!validations.isEmpty())
+        // what our part of the action costs, without the HTTP client
+        final ClientCost cost = ClientCost.start();
+        try
+        {
+            validateContent();
+        }
+        finally
         {
-            ctx = JsonPath.parse(response.getContentAsString());
+            cost.stopAndLog(getTimerName() + ".validate");
+        }
+    }
 
-            for (final Validation validation : validations)
+    /**
+     * Extracts from the response what the validations and storage prompts want and checks it.
+     *
+     * @throws Exception
+     *             if a validation fails
+     */
+    private void validateContent() throws Exception
+    {
+        // the content is validated as the policy says, the status always
+        final boolean validate = !validations.isEmpty() && ValidationPolicy.shouldValidate(validationName, response.getStatusCode());
+
+        if (validate && storagePrompts.isEmpty() && DeferredValidations.isEnabled())
+        {
+            // nothing to store, so nobody waits for the content, check it later on another thread
+            final byte[] body = JsonResponses.bytes(response);
+            final Charset charset = JsonResponses.charset(response);
+            final List<Validation> validations = this.validations;
+            final JsonPathExtractor extractor = extractor();
+
+            DeferredValidations.submit(getTimerName(), () ->
             {
-                handleValidation(validation, ctx);
+                final JsonPathExtractor.Result result = extractor.extract(() -> JsonResponses.reader(body, charset), () -> JsonResponses.parse(body, charset));
+                for (int i = 0; i < validations.size(); i++)
+                {
+                    handleValidation(validations.get(i), result.get(i));
+                }
+            });
+        }
+        else if (validate || !storagePrompts.isEmpty())
+        {
+            // one pass over the response for all paths
+            final JsonPathExtractor.Result result = extractor().extract(() -> JsonResponses.reader(response), () -> JsonResponses.parse(response));
+
+            if (validate)
+            {
+                for (int i = 0; i < validations.size(); i++)
+                {
+                    handleValidation(validations.get(i), result.get(i));
+                }
+            }
+
+            for (int i = 0; i < storagePrompts.size(); i++)
+            {
+                handleStore(storagePrompts.get(i), result.get(validations.size() + i));
             }
         }
+    }
 
-        if (!storagePrompts.isEmpty())
+    /**
+     * Returns the extractor for the paths of all validations and storage prompts, validations
+     * first.
+     *
+     * @return the extractor
+     */
+    private JsonPathExtractor extractor()
+    {
+        if (extractor == null)
         {
-            if (ctx == null)
+            final List<JsonPath> paths = new ArrayList<>(validations.size() + storagePrompts.size());
+            for (final Validation validation : validations)
             {
-                ctx = JsonPath.parse(response.getContentAsString());
+                paths.add(validation.compiledPath);
             }
             for (final StoragePrompt storagePrompt : storagePrompts)
             {
-                handleStore(storagePrompt, ctx);
+                paths.add(storagePrompt.compiledPath);
             }
 
+            extractor = new JsonPathExtractor(paths);
         }
+
+        return extractor;
     }
 
     /**
-     * Handles a storage Promt. Extracts the data from the response and puts it into the data store
-     * with the given name.
+     * Handles a storage Promt. Puts the data extracted from the response into the data store with
+     * the given name.
      *
      * @param storagePrompt
-     * @param ctx
+     * @param value
+     *            the value at the path of the prompt
      */
-    private void handleStore(final StoragePrompt storagePrompt, final ReadContext ctx)
+    private void handleStore(final StoragePrompt storagePrompt, final Object value)
     {
-        Assert.assertTrue("Response " + storagePrompt.jsonPath + " does not exists.", ctx.read(storagePrompt.jsonPath) != null);
-        Context.get().data.store.put(storagePrompt.name, ctx.read(storagePrompt.jsonPath));
+        Assert.assertTrue("Response " + storagePrompt.jsonPath + " does not exists.", value != null);
+        Context.get().data.store.put(storagePrompt.name, value);
     }
 
     /**
@@ -271,7 +413,7 @@ public class SimpleRESTJSONAction extends AbstractAction
      */
     public SimpleRESTJSONAction assertStatusPattern(final String pattern)
     {
-        this.statusPattern = pattern;
+        this.statusMatcher = StringUtils.isNotBlank(pattern) ? StatusCodeMatcher.of(pattern) : null;
         return this;
     }
 
@@ -284,33 +426,34 @@ public class SimpleRESTJSONAction extends AbstractAction
      */
     public SimpleRESTJSONAction assertStatus(final int statusCode)
     {
-        this.statusPattern = String.valueOf(statusCode);
+        this.statusMatcher = StatusCodeMatcher.of(statusCode);
         return this;
     }
 
     /**
-     * Handles a stored validation. Extracts the value from the response and checks against the
+     * Handles a stored validation. Checks the value extracted from the response against the
      * expectation.
      *
      * @param validation
-     * @param ctx
+     * @param value
+     *            the value at the path of the validation
      */
-    private void handleValidation(final Validation validation, final ReadContext ctx)
+    private static void handleValidation(final Validation validation, final Object value)
     {
         switch (validation.validationType) {
             case EXISTS:
-                Assert.assertTrue(validation.message != null ? validation.message : "Response " + validation.jsonPath + " does not exists.", ctx.read(validation.jsonPath) != null);
+                Assert.assertTrue(validation.message != null ? validation.message : "Response " + validation.jsonPath + " does not exists.", value != null);
                 break;
             case NOT_EQUALS:
                 Assert.assertNotEquals(
                                 validation.message != null ? validation.message : "Response " + validation.jsonPath + " does equals " + validation.expectedValue + "but should not",
                                 validation.expectedValue,
-                                ctx.read(validation.jsonPath));
+                                value);
                 break;
             case EQUALS:
                 Assert.assertEquals(validation.message != null ? validation.message : "Response " + validation.jsonPath + " does not equals " + validation.expectedValue,
                                 validation.expectedValue,
-                                ctx.read(validation.jsonPath));
+                                value);
                 break;
 
             default:
@@ -330,11 +473,10 @@ public class SimpleRESTJSONAction extends AbstractAction
      */
     public SimpleRESTJSONAction storeResponseValue(final String jsonPath, final String variableName)
     {
-        final StoragePrompt storagePrompt = new StoragePrompt();
+        unshare();
 
-        storagePrompt.jsonPath = jsonPath;
-        storagePrompt.name = variableName;
-        this.storagePrompts.add(storagePrompt);
+        this.storagePrompts.add(new StoragePrompt(jsonPath, variableName));
+        this.extractor = null;
 
         return this;
     }
@@ -350,16 +492,27 @@ public class SimpleRESTJSONAction extends AbstractAction
      */
     private SimpleRESTJSONAction addValidation(final String message, final String jsonPath, final Object expectedValue, final ValidationType validationType)
     {
-        final Validation validation = new Validation();
-        validation.message = message;
-        validation.jsonPath = jsonPath;
-        validation.expectedValue = expectedValue;
-        validation.validationType = validationType;
+        unshare();
 
-        this.validations.add(validation);
+        this.validations.add(new Validation(message, jsonPath, expectedValue, validationType));
+        this.extractor = null;
         return this;
     }
 
+    /**
+     * Takes private copies of the validations and storage prompts of a template before we change
+     * them.
+     */
+    private void unshare()
+    {
+        if (shared)
+        {
+            validations = new ArrayList<>(validations);
+            storagePrompts = new ArrayList<>(storagePrompts);
+            shared = false;
+        }
+    }
+
     /**
      * Validate the response content against an expected value. Checks if the value at the given
      * JSON path equals the given value.
@@ -465,12 +618,17 @@ public class SimpleRESTJSONAction extends AbstractAction
     @Override
     public void run() throws Throwable
     {
+        // what the action costs us, not the server
+        final ClientCost cost = ClientCost.start();
+
         try
         {
             super.run();
         }
         finally
         {
+            cost.stopAndLog(getTimerName());
+
             // add an empty "page" as the result of this action
             SessionImpl.getCurrent().getRequestHistory().add(getTimerName());
         }
@@ -482,19 +640,351 @@ public class SimpleRESTJSONAction extends AbstractAction
         EXISTS, EQUALS, NOT_EQUALS;
     }
 
-    /** Internal data object to store a validation promt. */
-    private class Validation
+    /** Internal data object to store a validation promt, immutable so templates can share it. */
+    private static class Validation
     {
-        ValidationType validationType;
-        Object expectedValue;
-        String jsonPath;
-        String message;
+        final ValidationType validationType;
+        final Object expectedValue;
+        final String jsonPath;
+        final JsonPath compiledPath;
+        final String message;
+
+        Validation(final String message, final String jsonPath, final Object expectedValue, final ValidationType validationType)
+        {
+            this.message = message;
+            this.jsonPath = jsonPath;
+            this.compiledPath = JsonPaths.compile(jsonPath);
+            this.expectedValue = expectedValue;
+            this.validationType = validationType;
+        }
+    }
+
+    /** Internal data object to store a storage promt, immutable so templates can share it. */
+    private static class StoragePrompt
+    {
+        final String name;
+        final String jsonPath;
+        final JsonPath compiledPath;
+
+        StoragePrompt(final String jsonPath, final String name)
+        {
+            this.name = name;
+            this.jsonPath = jsonPath;
+            this.compiledPath = JsonPaths.compile(jsonPath);
+        }
     }
 
-    /** Internal data object to store a storage promt. */
-    private class StoragePrompt
+    /**
+     * The immutable shape of an action: URLs, method, headers, parameters, and all checks. Every
+     * change returns a new template, so a template can be kept as static value and shared by all
+     * users. {@link #bind()} turns it into an action, which shares the headers, parameters, and
+     * compiled validations with the template and only adds what is set per call.
+     */
+    public static final class Template
     {
-        String name;
-        String jsonPath;
+        private final String timerName;
+
+        private String baseUrl;
+
+        private String relativeUrl;
+
+        private HttpMethod method;
+
+        private String body;
+
+        private List<NameValuePair> headers = new ArrayList<>();
+
+        private List<NameValuePair> params = new ArrayList<>();
+
+        private StatusCodeMatcher statusMatcher = StatusCodeMatcher.of("20.");
+
+        private List<Validation> validations = new ArrayList<>();
+
+        private List<StoragePrompt> storagePrompts = new ArrayList<>();
+
+        /** The compiled paths of validations and storage prompts, set up on first use */
+        private volatile JsonPathExtractor extractor;
+
+        /** The timer names by site id */
+        private final ConcurrentHashMap<String, String> timerNames = new ConcurrentHashMap<>();
+
+        private Template(final String timerName)
+        {
+            this.timerName = timerName;
+        }
+
+        /**
+         * Copy a template for a change
+         */
+        private Template(final Template template)
+        {
+            this.timerName = template.timerName;
+            this.baseUrl = template.baseUrl;
+            this.relativeUrl = template.relativeUrl;
+            this.method = template.method;
+            this.body = template.body;
+            this.headers = template.headers;
+            this.params = template.params;
+            this.statusMatcher = template.statusMatcher;
+            this.validations = template.validations;
+            this.storagePrompts = template.storagePrompts;
+        }
+
+        /**
+         * Returns an action that is set up as described by this template. Add the parameters
+         * and checks that differ per call and run it.
+         *
+         * @return a new action
+         */
+        public SimpleRESTJSONAction bind()
+        {
+            return new SimpleRESTJSONAction(this);
+        }
+
+        /**
+         * Returns the timer name for a site, computed once per site
+         */
+        private String timerName(final String siteId)
+        {
+            final String name = timerNames.get(siteId);
+            if (name != null)
+            {
+                return name;
+            }
+
+            final String newName = RESTTestCase.getSiteSpecificName(timerName, siteId);
+            final String existing = timerNames.putIfAbsent(siteId, newName);
+
+            return existing != null ? existing : newName;
+        }
+
+        /**
+         * Returns the extractor for the paths of all validations and storage prompts,
+         * validations first, as the action expects it.
+         */
+        private JsonPathExtractor extractor()
+        {
+            JsonPathExtractor e = extractor;
+            if (e == null)
+            {
+                final List<JsonPath> paths = new ArrayList<>(validations.size() + storagePrompts.size());
+                for (final Validation validation : validations)
+                {
+                    paths.add(validation.compiledPath);
+                }
+                for (final StoragePrompt storagePrompt : storagePrompts)
+                {
+                    paths.add(storagePrompt.compiledPath);
+                }
+
+                // we might do that twice, it does not matter
+                e = new JsonPathExtractor(paths);
+                extractor = e;
+            }
+
+            return e;
+        }
+
+        /**
+         * Returns a copy with a list extended by one element, the lists are never changed in
+         * place because actions share them
+         */
+        private static <T> List<T> append(final List<T> list, final T element)
+        {
+            final List<T> newList = new ArrayList<>(list.size() + 1);
+            newList.addAll(list);
+            newList.add(element);
+
+            return newList;
+        }
+
+        /**
+         * Sets the base URL.
+         *
+         * @param url
+         * @return a new template
+         */
+        public Template baseUrl(final String url)
+        {
+            final Template t = new Template(this);
+            t.baseUrl = url;
+            return t;
+        }
+
+        /**
+         * Sets the relative URL.
+         *
+         * @param url
+         * @return a new template
+         */
+        public Template relativeUrl(final String url)
+        {
+            final Template t = new Template(this);
+            t.relativeUrl = url;
+            return t;
+        }
+
+        /**
+         * Sets the HTTP method.
+         *
+         * @param method
+         * @return a new template
+         */
+        public Template method(final HttpMethod method)
+        {
+            final Template t = new Template(this);
+            t.method = method;
+            return t;
+        }
+
+        /**
+         * Sets the request body.
+         *
+         * @param body
+         * @return a new template
+         */
+        public Template body(final String body)
+        {
+            final Template t = new Template(this);
+            t.body = body;
+            return t;
+        }
+
+        /**
+         * Adds a request header.
+         *
+         * @param name
+         * @param value
+         * @return a new template
+         */
+        public Template header(final String name, final String value)
+        {
+            final Template t = new Template(this);
+            t.headers = append(headers, new NameValuePair(name, value));
+            return t;
+        }
+
+        /**
+         * Adds a request parameter.
+         *
+         * @param name
+         * @param value
+         * @return a new template
+         */
+        public Template param(final String name, final String value)
+        {
+            final Template t = new Template(this);
+            t.params = append(params, new NameValuePair(name, value));
+            return t;
+        }
+
+        /**
+         * Match the status of the response against a given pattern.
+         *
+         * @param pattern
+         *            The RegExp pattern to check the status against. E.g. "20.", "404|401", ...
+         * @return a new template
+         */
+        public Template assertStatusPattern(final String pattern)
+        {
+            final Template t = new Template(this);
+            t.statusMatcher = StringUtils.isNotBlank(pattern) ? StatusCodeMatcher.of(pattern) : null;
+            return t;
+        }
+
+        /**
+         * Check the response status code against this code.
+         *
+         * @param statusCode
+         * @return a new template
+         */
+        public Template assertStatus(final int statusCode)
+        {
+            final Template t = new Template(this);
+            t.statusMatcher = StatusCodeMatcher.of(statusCode);
+            return t;
+        }
+
+        /**
+         * Store a value from the response, see
+         * {@link SimpleRESTJSONAction#storeResponseValue(String, String)}
+         *
+         * @param jsonPath
+         * @param variableName
+         * @return a new template
+         */
+        public Template storeResponseValue(final String jsonPath, final String variableName)
+        {
+            final Template t = new Template(this);
+            t.storagePrompts = append(storagePrompts, new StoragePrompt(jsonPath, variableName));
+            return t;
+        }
+
+        private Template addValidation(final String message, final String jsonPath, final Object expectedValue, final ValidationType validationType)
+        {
+            final Template t = new Template(this);
+            t.validations = append(validations, new Validation(message, jsonPath, expectedValue, validationType));
+            return t;
+        }
+
+        /**
+         * See {@link SimpleRESTJSONAction#validateEquals(String, String, Object)}
+         *
+         * @return a new template
+         */
+        public Template validateEquals(final String message, final String jsonPath, final Object expectedValue)
+        {
+            return addValidation(message, jsonPath, expectedValue, ValidationType.EQUALS);
+        }
+
+        /**
+         * See {@link SimpleRESTJSONAction#validateEquals(String, Object)}
+         *
+         * @return a new template
+         */
+        public Template validateEquals(final String jsonPath, final Object expectedValue)
+        {
+            return validateEquals(null, jsonPath, expectedValue);
+        }
+
+        /**
+         * See {@link SimpleRESTJSONAction#validateNotEquals(String, String, Object)}
+         *
+         * @return a new template
+         */
+        public Template validateNotEquals(final String message, final String jsonPath, final Object expectedValue)
+        {
+            return addValidation(message, jsonPath, expectedValue, ValidationType.NOT_EQUALS);
+        }
+
+        /**
+         * See {@link SimpleRESTJSONAction#validateNotEquals(String, Object)}
+         *
+         * @return a new template
+         */
+        public Template validateNotEquals(final String jsonPath, final Object expectedValue)
+        {
+            return validateNotEquals(null, jsonPath, expectedValue);
+        }
+
+        /**
+         * See {@link SimpleRESTJSONAction#validateExists(String, String)}
+         *
+         * @return a new template
+         */
+        public Template validateExists(final String message, final String jsonPath)
+        {
+            return addValidation(message, jsonPath, null, ValidationType.EXISTS);
+        }
+
+        /**
+         * See {@link SimpleRESTJSONAction#validateExists(String)}
+         *
+         * @return a new template
+         */
+        public Template validateExists(final String jsonPath)
+        {
+            return validateExists(null, jsonPath);
+        }
     }
 }
@@ -0,0 +1,286 @@
+package com.xceptance.loadtest.api.util;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Assert;
+
+import com.xceptance.loadtest.api.configuration.LTProperties;
+import com.xceptance.xlt.api.engine.Session;
+
+/**
+ * Decides whether the content of a response is validated. Validation costs CPU of the agent that
+ * we rather spend on load, so we can validate only some of the responses. The status code is not
+ * subject to this, it is always checked.
+ * <p>
+ * The policy is looked up as <code>general.validation.&lt;action name&gt;</code> first, then as
+ * <code>general.validation</code>, both with the usual test case and site specific lookup. The
+ * action name is the timer name without the site id. Possible values are:
+ * <ul>
+ * <li><code>always</code> - validate every response, the default</li>
+ * <li><code>never</code> - don't validate content at all</li>
+ * <li><code>sample 10</code> - validate 10% of the responses of every user, the first one always</li>
+ * <li><code>first 5</code> - validate the first 5 responses of every user</li>
+ * <li><code>anomaly</code> - validate when the status is not 2xx or differs from the previous
+ * response of this user</li>
+ * </ul>
+ * Sampling is done by counting, not by random numbers, so the random values of a test run stay the
+ * same no matter what we validate.
+ *
+ * @author agent
+ */
+public class ValidationPolicy
+{
+    /**
+     * The property to configure the policy, optionally followed by the action name
+     */
+    public static final String PROPERTY = "general.validation";
+
+    /**
+     * Validate everything
+     */
+    public static final ValidationPolicy ALWAYS = new ValidationPolicy("always", Mode.ALWAYS, 0);
+
+    /**
+     * The parsed policies by their definition
+     */
+    private static final ConcurrentHashMap<String, ValidationPolicy> POLICIES = new ConcurrentHashMap<>();
+
+    /**
+     * What we have seen per user and action
+     */
+    private static final ConcurrentHashMap<String, State> STATES = new ConcurrentHashMap<>();
+
+    /**
+     * The kinds of policies
+     */
+    private enum Mode
+    {
+        ALWAYS, NEVER, SAMPLE, FIRST, ANOMALY;
+    }
+
+    /**
+     * The definition as given
+     */
+    private final String definition;
+
+    /**
+     * The kind of policy
+     */
+    private final Mode mode;
+
+    /**
+     * The percentage to sample or the number of responses to validate first
+     */
+    private final int amount;
+
+    private ValidationPolicy(final String definition, final Mode mode, final int amount)
+    {
+        this.definition = definition;
+        this.mode = mode;
+        this.amount = amount;
+    }
+
+    /**
+     * Returns the policy for a definition such as <code>sample 10</code>
+     *
+     * @param definition
+     *            the policy definition
+     * @return the policy
+     */
+    public static ValidationPolicy of(final String definition)
+    {
+        final ValidationPolicy policy = POLICIES.get(definition);
+        if (policy != null)
+        {
+            return policy;
+        }
+
+        final ValidationPolicy newPolicy = parse(definition);
+        final ValidationPolicy existing = POLICIES.putIfAbsent(definition, newPolicy);
+
+        return existing != null ? existing : newPolicy;
+    }
+
+    /**
+     * Parses a policy definition
+     *
+     * @param definition
+     *            the definition
+     * @return the policy
+     */
+    private static ValidationPolicy parse(final String definition)
+    {
+        final String[] parts = definition.trim().toLowerCase(Locale.ROOT).split("\\s+");
+
+        try
+        {
+            switch (parts[0])
+            {
+                case "always":
+                    return ALWAYS;
+                case "never":
+                    return new ValidationPolicy(definition, Mode.NEVER, 0);
+                case "anomaly":
+                    return new ValidationPolicy(definition, Mode.ANOMALY, 0);
+                case "sample":
+                    final int percentage = Integer.parseInt(parts[1].replace("%", ""));
+                    if (percentage >= 0 && percentage <= 100)
+                    {
+                        return new ValidationPolicy(definition, Mode.SAMPLE, percentage);
+                    }
+                    break;
+                case "first":
+                    final int count = Integer.parseInt(parts[1]);
+                    if (count >= 0)
+                    {
+                        return new ValidationPolicy(definition, Mode.FIRST, count);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        catch (final NumberFormatException | ArrayIndexOutOfBoundsException e)
+        {
+            // reported below
+        }
+
+        Assert.fail("Invalid validation policy '" + definition + "', use always, never, sample <percent>, first <count>, or anomaly");
+        return null;
+    }
+
+    /**
+     * Returns the policy configured for an action of the current test
+     *
+     * @param actionName
+     *            the action name without site id
+     * @return the policy
+     */
+    public static ValidationPolicy forAction(final String actionName)
+    {
+        final LTProperties properties = Context.configuration().properties;
+
+        String definition = properties.getProperty(PROPERTY + "." + actionName, null);
+        if (definition == null)
+        {
+            definition = properties.getProperty(PROPERTY, null);
+        }
+
+        return definition != null ? of(definition) : ALWAYS;
+    }
+
+    /**
+     * Returns the action name for a timer name, that is the timer name without the site id the
+     * actions append, e.g. what an action lambda gets handed
+     *
+     * @param timerName
+     *            the site specific timer name
+     * @return the action name without site id
+     */
+    public static String actionName(final String timerName)
+    {
+        final String suffix = "_" + Context.getSite().id;
+
+        return timerName.endsWith(suffix) ? timerName.substring(0, timerName.length() - suffix.length()) : timerName;
+    }
+
+    /**
+     * Asks the configured policy of an action whether this response is to be validated, counts
+     * the response for the current user.
+     *
+     * @param actionName
+     *            the action name without site id
+     * @param statusCode
+     *            the status code of the response
+     * @return true if the content of the response shall be validated
+     */
+    public static boolean shouldValidate(final String actionName, final int statusCode)
+    {
+        return forAction(actionName).validate(actionName, statusCode);
+    }
+
+    /**
+     * Decides whether this response is to be validated, counts the response for the current user.
+     *
+     * @param actionName
+     *            the action name without site id
+     * @param statusCode
+     *            the status code of the response
+     * @return true if the content of the response shall be validated
+     */
+    public boolean validate(final String actionName, final int statusCode)
+    {
+        switch (mode)
+        {
+            case ALWAYS:
+                return true;
+            case NEVER:
+                return false;
+            default:
+                break;
+        }
+
+        final State state = state(actionName);
+        synchronized (state)
+        {
+            final long seen = state.count++;
+            final int previousStatus = state.lastStatus;
+            state.lastStatus = statusCode;
+
+            switch (mode)
+            {
+                case SAMPLE:
+                    // spreads the validations evenly, e.g. 30% validates 0, 4, and 7 of every 10
+                    return (seen * amount) % 100 < amount;
+                case FIRST:
+                    return seen < amount;
+                default:
+                    return statusCode < 200 || statusCode > 299 || statusCode != previousStatus;
+            }
+        }
+    }
+
+    /**
+     * Returns what we have seen for an action of the current user
+     *
+     * @param actionName
+     *            the action name
+     * @return the state
+     */
+    private static State state(final String actionName)
+    {
+        final Session session = Session.getCurrent();
+        final String key = session.getUserName() + "-" + session.getUserNumber() + "|" + actionName;
+
+        final State state = STATES.get(key);
+        if (state != null)
+        {
+            return state;
+        }
+
+        final State newState = new State();
+        final State existing = STATES.putIfAbsent(key, newState);
+
+        return existing != null ? existing : newState;
+    }
+
+    /**
+     * Returns the definition
+     */
+    @Override
+    public String toString()
+    {
+        return definition;
+    }
+
+    /**
+     * The responses of a user for an action
+     */
+    private static class State
+    {
+        private long count;
+
+        private int lastStatus = -1;
+    }
+}
@@ -2,12 +2,16 @@ package com.xceptance.loadtest.rest.actions.jsonserver;
 
 import static org.junit.Assert.assertEquals;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.Assert;
 
 import org.htmlunit.HttpMethod;
 import com.google.gson.Gson;
-import com.jayway.jsonpath.JsonPath;
 import com.jayway.jsonpath.ReadContext;
+import com.xceptance.loadtest.api.json.JsonPaths;
+import com.xceptance.loadtest.api.json.JsonResponses;
 import com.xceptance.loadtest.api.util.Actions;
 import com.xceptance.loadtest.api.util.Context;
 import com.xceptance.loadtest.rest.actions.jsonserver.data.Post;
@@ -41,7 +45,7 @@ public class Posts
                             .fire();
             r.checkStatusCode(200); // ok?
 
-            final var p = GsonUtil.gson().fromJson(r.getContentAsString(), Post[].class);
+            final var p = GsonUtil.fromJson(r, Post[].class);
 
             assertEquals(100, p.length);
 
@@ -61,20 +65,52 @@ public class Posts
     {
         // this is the measurement block to assign the proper naming to everything that happens
         // here and report the action aka activity as its own measurement block
-        return Actions.get("Get Post", t ->
+        return Actions.get("Get Post", t -> fetch(t, id));
+    }
+
+    /**
+     * Fetches several posts at once, as a client would do it, and not one after another
+     *
+     * @param ids
+     *            the ids to fetch
+     * @return the posts in the order of the ids
+     * @throws Throwable
+     */
+    public static List<Post> byIds(final List<String> ids) throws Throwable
+    {
+        final List<Actions.Timed<Post>> fetches = new ArrayList<>(ids.size());
+        for (final String id : ids)
         {
-            // "t" is the time name we have to pass to the HttpRequest,
-            // we can name it manually too of course
-            final HttpResponse r = new HttpRequest()
-                            .timerName(t)
-                            .baseUrl(Context.configuration().jsonplaceholderHost)
-                            .relativeUrl("/posts/" + id) // simple formatting of the url
-                            .fire();
-            r.checkStatusCode(200); // ok?
+            fetches.add(Actions.timed("Get Post", t -> fetch(t, id)));
+        }
 
-            // turn it into an object
-            return GsonUtil.gson().fromJson(r.getContentAsString(), Post.class);
-        });
+        // one action, but every request is still measured on its own as Get Post
+        return Actions.getAll("Get Posts By Id", fetches);
+    }
+
+    /**
+     * Fires the request for a post
+     *
+     * @param timerName
+     *            the timer name for the request
+     * @param id
+     *            the id to fetch
+     * @return the post
+     * @throws Throwable
+     */
+    private static Post fetch(final String timerName, final String id) throws Throwable
+    {
+        // the timer name is the one we have to pass to the HttpRequest,
+        // we can name it manually too of course
+        final HttpResponse r = new HttpRequest()
+                        .timerName(timerName)
+                        .baseUrl(Context.configuration().jsonplaceholderHost)
+                        .relativeUrl("/posts/" + id) // simple formatting of the url
+                        .fire();
+        r.checkStatusCode(200); // ok?
+
+        // turn it into an object, straight from the bytes
+        return GsonUtil.fromJson(r, Post.class);
     }
 
     /**
@@ -100,16 +136,14 @@ public class Posts
                             .fire();
             r.checkStatusCode(201);
 
-            final String response = r.getContentAsString();
-
             // ok, get us the post code and use the jsonpath query language for that
-            final ReadContext ctx = JsonPath.parse(response);
+            final ReadContext ctx = JsonResponses.parse(r);
 
-            final String id = ctx.read("$.id", String.class);
+            final String id = ctx.read(JsonPaths.compile("$.id"), String.class);
             Assert.assertTrue(Integer.valueOf(id) > 0);
-            Assert.assertEquals(post.title, ctx.read("$.title", String.class));
-            Assert.assertEquals(post.body, ctx.read("$.body", String.class));
-            Assert.assertEquals(post.author, ctx.read("$.author", String.class));
+            Assert.assertEquals(post.title, ctx.read(JsonPaths.compile("$.title"), String.class));
+            Assert.assertEquals(post.body, ctx.read(JsonPaths.compile("$.body"), String.class));
+            Assert.assertEquals(post.author, ctx.read(JsonPaths.compile("$.author"), String.class));
 
             return id;
         });
@@ -39,6 +39,9 @@ public class Configuration
     @Property(key = "general.clearCookies")
     public boolean clearCookies;
 
+    @Property(key = "general.fanOut.threads", required = false, fallback = "4")
+    public int fanOutThreads;
+
     // =========================================================
     // jsonplaceholder test case config
 
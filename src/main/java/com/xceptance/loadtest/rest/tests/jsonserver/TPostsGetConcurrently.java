@@ -0,0 +1,50 @@
+package com.xceptance.loadtest.rest.tests.jsonserver;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.xceptance.loadtest.api.tests.RESTTestCase;
+import com.xceptance.loadtest.api.util.Context;
+import com.xceptance.loadtest.rest.actions.jsonserver.Posts;
+import com.xceptance.xlt.api.util.XltRandom;
+
+
+public class TPostsGetConcurrently extends RESTTestCase
+{
+    /**
+     * Using the http://jsonplaceholder.typicode.com/, the same as {@link TPostsGetAsObjects}, but
+     * the posts are fetched at once and not one after another
+     *
+     * @throws Throwable
+     */
+    @Override
+    public void test() throws Throwable
+    {
+        // fetch all first
+        final var posts = Posts.all();
+
+        // ok, we have our posts, let's fetch a few
+
+        // amount will be populated with a random value by the framework according to our
+        // range spec in the properties such as 3-5, this is fix for this iteration!
+        final var amount = Context.configuration().jsonplaceholderGetCount.value;
+        final List<String> ids = new ArrayList<>(amount);
+        for (int i = 0; i < amount; i++)
+        {
+            // get us a random post
+            ids.add(posts[XltRandom.nextInt(posts.length)].id);
+        }
+
+        // fetch them all at once as a single activity, a real client would not wait for one
+        // before asking for the next, see general.fanOut.threads
+        final var fetched = Posts.byIds(ids);
+
+        for (int i = 0; i < amount; i++)
+        {
+            // just check that it is the one we asked for
+            assertEquals(ids.get(i), fetched.get(i).id);
+        }
+    }
+}
@@ -2,8 +2,9 @@ package com.xceptance.loadtest.rest.tests.jsonserver;
 
 import org.junit.Assert;
 
-import com.jayway.jsonpath.JsonPath;
 import com.jayway.jsonpath.ReadContext;
+import com.xceptance.loadtest.api.json.JsonPaths;
+import com.xceptance.loadtest.api.json.JsonResponses;
 import com.xceptance.loadtest.api.tests.RESTTestCase;
 import com.xceptance.loadtest.api.util.Actions;
 import com.xceptance.loadtest.api.util.Context;
@@ -32,12 +33,12 @@ public class TPostsGetPlain extends RESTTestCase
             r.checkStatusCode(200);
 
             // ok, get us the post code and use the jsonpath query language for that
-            final ReadContext ctx = JsonPath.parse(r.getContentAsString());
+            final ReadContext ctx = JsonResponses.parse(r);
 
             // verify
-            Assert.assertTrue(1 == ctx.read("$.userId", Integer.class));
-            Assert.assertTrue(ctx.read("$.title", String.class).length() > 0);
-            Assert.assertTrue(ctx.read("$.body", String.class).length() > 0);
+            Assert.assertTrue(1 == ctx.read(JsonPaths.compile("$.userId"), Integer.class));
+            Assert.assertTrue(ctx.read(JsonPaths.compile("$.title"), String.class).length() > 0);
+            Assert.assertTrue(ctx.read(JsonPaths.compile("$.body"), String.class).length() > 0);
         });
     }
 
@@ -6,6 +6,8 @@ import com.jayway.jsonpath.JsonPath;
 import com.jayway.jsonpath.ReadContext;
 import com.xceptance.common.util.RegExUtils;
 import com.xceptance.loadtest.api.data.NonSiteRelatedTest;
+import com.xceptance.loadtest.api.json.JsonPaths;
+import com.xceptance.loadtest.api.json.JsonResponses;
 import com.xceptance.loadtest.api.tests.RESTTestCase;
 import com.xceptance.loadtest.api.util.Actions;
 import com.xceptance.loadtest.api.util.Context;
@@ -35,8 +37,8 @@ public class TRandomPostcode extends RESTTestCase implements NonSiteRelatedTest
 
             // ok, get us the post code and use the jsonpath query language for that
             final ReadContext ctx = JsonPath.parse(response);
-            Assert.assertTrue(200 == ctx.read("$.status", Integer.class));
-            Assert.assertEquals("M32 0JG", ctx.read("$.result.postcode", String.class));
+            Assert.assertTrue(200 == ctx.read(JsonPaths.compile("$.status"), Integer.class));
+            Assert.assertEquals("M32 0JG", ctx.read(JsonPaths.compile("$.result.postcode"), String.class));
 
             // if you fancy regexp, so be it, the XLT RegExUtils caches the regex for efficiency
             Assert.assertEquals("200", RegExUtils.getFirstMatch(response, "\"status\":([0-9]+),", 1));
@@ -50,8 +52,8 @@ public class TRandomPostcode extends RESTTestCase implements NonSiteRelatedTest
             r.checkStatusCode(200);
 
             // ok, we don't have to keep the parsed response here as seen above, because we need it
-            // only once!
-            return JsonPath.parse(r.getContentAsString()).read("$.result.postcode", String.class);
+            // only once! And we don't need it as string either, so parse the bytes directly.
+            return JsonResponses.parse(r).read(JsonPaths.compile("$.result.postcode"), String.class);
         });
 
         // check the that the reverse post code presented is valid using the service
@@ -60,7 +62,7 @@ public class TRandomPostcode extends RESTTestCase implements NonSiteRelatedTest
             final HttpResponse r = new HttpRequest().timerName(t).baseUrl("https://api.postcodes.io").relativeUrl("/postcodes/" + postcode + "/validate").fire();
             r.checkStatusCode(200);
 
-            Assert.assertTrue(JsonPath.parse(r.getContentAsString()).read("$.result", Boolean.class));
+            Assert.assertTrue(JsonResponses.parse(r).read(JsonPaths.compile("$.result"), Boolean.class));
         });
     }
 
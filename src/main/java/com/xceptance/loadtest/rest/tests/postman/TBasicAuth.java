@@ -10,6 +10,7 @@ import com.xceptance.loadtest.api.net.AuthorizedHttpRequest;
 import com.xceptance.loadtest.api.tests.RESTTestCase;
 import com.xceptance.loadtest.api.util.Actions;
 import com.xceptance.loadtest.api.util.Context;
+import com.xceptance.loadtest.api.util.ValidationPolicy;
 import com.xceptance.xlt.engine.httprequest.HttpRequest;
 import com.xceptance.xlt.engine.httprequest.HttpResponse;
 
@@ -56,11 +57,15 @@ public class TBasicAuth extends RESTTestCase implements NonSiteRelatedTest
             // on an 8-core machine in a GCP data center
             // the overall measured runtimes stay the same, because the measurement
             // is taken underneath and does not include this time here.
-            final String responseContent = authorizedResponse.getContentAsString();
+            // Hence we only validate as often as the validation policy (general.validation) says.
+            if (ValidationPolicy.shouldValidate(ValidationPolicy.actionName(t), authorizedResponse.getStatusCode()))
+            {
+                final String responseContent = authorizedResponse.getContentAsString();
 
-            // Validate the response.
-            final ReadContext ctx = JsonPath.parse(responseContent);
-            Assert.assertEquals(true, ctx.read("$.authenticated", Boolean.class));
+                // Validate the response.
+                final ReadContext ctx = JsonPath.parse(responseContent);
+                Assert.assertEquals(true, ctx.read("$.authenticated", Boolean.class));
+            }
         });
     }
 
@@ -9,6 +9,7 @@ import com.xceptance.loadtest.api.tests.RESTTestCase;
 import com.xceptance.loadtest.api.util.Actions;
 import com.xceptance.loadtest.api.util.Context;
 import com.xceptance.loadtest.api.util.SimpleRESTJSONAction;
+import com.xceptance.loadtest.api.util.ValidationPolicy;
 import com.xceptance.xlt.api.util.XltRandom;
 import com.xceptance.xlt.engine.httprequest.HttpRequest;
 import com.xceptance.xlt.engine.httprequest.HttpResponse;
@@ -97,6 +98,12 @@ public class TTimestamp extends RESTTestCase implements NonSiteRelatedTest
             // on an 8-core machine in a GCP data center
             // the overall measured runtimes stay the same, because the measurement
             // is taken underneath and does not include this time here
+            // hence we only validate as often as the validation policy (general.validation) says
+            if (!ValidationPolicy.shouldValidate(ValidationPolicy.actionName(t), response.getStatusCode()))
+            {
+                return;
+            }
+
             final String responseContent = response.getContentAsString();
 
             // ok, get us some response content for validation and use the jsonpath query
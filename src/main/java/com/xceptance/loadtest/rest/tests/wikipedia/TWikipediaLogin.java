@@ -28,6 +28,25 @@ public class TWikipediaLogin extends RESTTestCase
     // The exclusive account to log into the site.
     private Account account;
 
+    // The shape of both calls never changes, so define it once for all users and iterations.
+    private static final SimpleRESTJSONAction.Template GET_TOKEN = SimpleRESTJSONAction.template("GetToken")
+                    .relativeUrl("/w/api.php")
+                    .param("action", "query")
+                    .param("meta", "tokens")
+                    .param("format", "json")
+                    .param("type", "login")
+                    .method(HttpMethod.GET)
+                    .assertStatus(200)
+                    .storeResponseValue("$.query.tokens.logintoken", LOGIN_TOKEN_NAME);
+
+    private static final SimpleRESTJSONAction.Template LOGIN = SimpleRESTJSONAction.template("Login")
+                    .relativeUrl("/w/api.php")
+                    .method(HttpMethod.POST)
+                    .param("format", "json")
+                    .param("action", "login")
+                    .assertStatus(200)
+                    .validateEquals("Login not successfull, check login data in accounts.csv", "$.login.result", "Success");
+
     /**
      * {@inheritDoc}
      */
@@ -48,33 +67,19 @@ public class TWikipediaLogin extends RESTTestCase
 
         // The Wikimedia API demands a token for a specific request, so we need to retrieve one, and
         // store it for later use.
-        new SimpleRESTJSONAction("GetToken")
+        GET_TOKEN.bind()
                         .baseUrl(Context.get().configuration.baseUrl)
-                        .relativeUrl("/w/api.php")
                         .header("User-Agent", Context.get().configuration.userAgent)
-                        .param("action", "query")
-                        .param("meta", "tokens")
-                        .param("format", "json")
-                        .param("type", "login")
-                        .method(HttpMethod.GET)
-                        .assertStatus(200)
-                        .storeResponseValue("$.query.tokens.logintoken", LOGIN_TOKEN_NAME)
                         .run();
 
         // The real login call. Submit user, password and the previously stored token
-        new SimpleRESTJSONAction("Login")
+        LOGIN.bind()
                         .baseUrl(Context.get().configuration.baseUrl)
-                        .relativeUrl("/w/api.php")
-                        .method(HttpMethod.POST)
                         .header("User-Agent", Context.get().configuration.userAgent)
                         .param("lgtoken", String.valueOf(
                                         Context.get().getStored(LOGIN_TOKEN_NAME)))
-                        .param("format", "json")
                         .param("lgname", account.user)
                         .param("lgpassword", account.password)
-                        .param("action", "login")
-                        .assertStatus(200)
-                        .validateEquals("Login not successfull, check login data in accounts.csv", "$.login.result", "Success")
                         .run();
     }
 
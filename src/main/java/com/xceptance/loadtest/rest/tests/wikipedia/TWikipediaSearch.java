@@ -27,6 +27,50 @@ import net.minidev.json.JSONArray;
  */
 public class TWikipediaSearch extends RESTTestCase
 {
+    // The shape of the calls never changes, so define it once for all users and iterations. Base
+    // URL and user agent are site specific and set per call as well as the actual search data.
+    private static final SimpleRESTJSONAction.Template SEARCH = SimpleRESTJSONAction.template("Search")
+                    .relativeUrl("/w/api.php")
+                    .method(HttpMethod.GET)
+                    .param("format", "json")
+                    .param("action", "query")
+                    .param("list", "search")
+                    .assertStatus(200)
+                    .validateExists("$.query.searchinfo.totalhits")
+                    .storeResponseValue("$.query.search", "search_result")
+                    .storeResponseValue("$.continue.continue", "search_continue")
+                    .storeResponseValue("$.continue.sroffset", "search_offset");
+
+    private static final SimpleRESTJSONAction.Template CONTINUE_SEARCH = SimpleRESTJSONAction.template("Continue Search")
+                    .relativeUrl("/w/api.php")
+                    .method(HttpMethod.GET)
+                    .param("format", "json")
+                    .param("action", "query")
+                    .param("list", "search")
+                    .assertStatus(200)
+                    .validateExists("$.query.searchinfo.totalhits")
+                    .storeResponseValue("$.query.search", "search_result");
+
+    private static final SimpleRESTJSONAction.Template GET_PAGE_LINKS = SimpleRESTJSONAction.template("GetPageLinks")
+                    .relativeUrl("/w/api.php")
+                    .method(HttpMethod.GET)
+                    .param("format", "json")
+                    .param("action", "query")
+                    .param("prop", "linkshere")
+                    .validateExists("$.query.pages")
+                    .assertStatus(200);
+
+    private static final SimpleRESTJSONAction.Template GET_EXTRACTS = SimpleRESTJSONAction.template("GetExtracts")
+                    .relativeUrl("/w/api.php")
+                    .method(HttpMethod.GET)
+                    .param("format", "json")
+                    .param("exlimit", "5")
+                    .param("exintro", "true")
+                    .param("explaintext", "true")
+                    .param("action", "query")
+                    .param("prop", "extracts")
+                    .assertStatus(200)
+                    .validateExists("$.query.pages");
 
     /**
      * {@inheritDoc}
@@ -40,40 +84,22 @@ public class TWikipediaSearch extends RESTTestCase
         final String searchTerm = DataSupplier.searchterm();
 
         // Perfrom search call again wiki API, store, some values from the response.
-        new SimpleRESTJSONAction("Search")
+        SEARCH.bind()
                         .baseUrl(Context.get().configuration.baseUrl)
-                        .relativeUrl("/w/api.php")
-                        .method(HttpMethod.GET)
                         .header("User-Agent", Context.get().configuration.userAgent)
-                        .param("format", "json")
-                        .param("action", "query")
-                        .param("list", "search")
                         .param("srsearch", searchTerm)
-                        .assertStatus(200)
-                        .validateExists("$.query.searchinfo.totalhits")
-                        .storeResponseValue("$.query.search", "search_result")
-                        .storeResponseValue("$.continue.continue", "search_continue")
-                        .storeResponseValue("$.continue.sroffset", "search_offset")
                         .run();
 
         // Choose by configured probability, whether we want to continue the search (next page) or
         // not
         if (Context.configuration().continueSearch.random())
         {
-            new SimpleRESTJSONAction("Continue Search")
+            CONTINUE_SEARCH.bind()
                             .baseUrl(Context.get().configuration.baseUrl)
-                            .relativeUrl("/w/api.php")
-                            .method(HttpMethod.GET)
                             .header("User-Agent", Context.get().configuration.userAgent)
-                            .param("format", "json")
-                            .param("action", "query")
-                            .param("list", "search")
                             .param("continue", (String) Context.get().getStored("search_continue"))
                             .param("sroffset", String.valueOf(Context.get().data.store.get("search_offset")))
                             .param("srsearch", searchTerm)
-                            .assertStatus(200)
-                            .validateExists("$.query.searchinfo.totalhits")
-                            .storeResponseValue("$.query.search", "search_result")
                             .run();
         }
 
@@ -91,19 +117,12 @@ public class TWikipediaSearch extends RESTTestCase
         // configured distribution in the sites.yaml or site.yaml.
         for (int i = 0; i < Context.configuration().articleCount.random(); i++)
         {
-            new SimpleRESTJSONAction("GetPageLinks")
+            GET_PAGE_LINKS.bind()
                             .baseUrl(Context.get().configuration.baseUrl)
-                            .relativeUrl("/w/api.php")
-                            .method(HttpMethod.GET)
                             .header("User-Agent", Context.get().configuration.userAgent)
-                            .param("format", "json")
-                            .param("action", "query")
-                            .param("prop", "linkshere")
                             .param("titles", title)
-                            .validateExists("$.query.pages")
                             .storeResponseValue("$.query.pages." + pageId + ".linkshere[0].title", "next_title")
                             .storeResponseValue("$.query.pages." + pageId + ".linkshere[0].pageid", "next_pageId")
-                            .assertStatus(200)
                             .run();
 
             // get Id an page title, for the next round.
@@ -113,20 +132,10 @@ public class TWikipediaSearch extends RESTTestCase
         }
 
         // Retrieve first sentence of the last chosen page.
-        new SimpleRESTJSONAction("GetExtracts")
+        GET_EXTRACTS.bind()
                         .baseUrl(Context.get().configuration.baseUrl)
-                        .relativeUrl("/w/api.php")
-                        .method(HttpMethod.GET)
                         .header("User-Agent", Context.get().configuration.userAgent)
-                        .param("format", "json")
-                        .param("exlimit", "5")
-                        .param("exintro", "true")
-                        .param("explaintext", "true")
-                        .param("action", "query")
-                        .param("prop", "extracts")
                         .param("titles", title)
-                        .assertStatus(200)
-                        .validateExists("$.query.pages")
                         .run();
 
     }
@@ -1,6 +1,12 @@
 package com.xceptance.loadtest.rest.util;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+
 import com.google.gson.Gson;
+import com.xceptance.loadtest.api.json.JsonResponses;
+import com.xceptance.xlt.engine.httprequest.HttpResponse;
 
 /**
  * Just things we don't want to do all over again
@@ -17,4 +23,25 @@ public class GsonUtil
     {
         return gson;
     }
+
+    /**
+     * Turns the body of a response into an object, Gson reads the bytes, no string in between
+     *
+     * @param response
+     *            the response to read
+     * @param type
+     *            the type to create
+     * @return the object or null if the body is empty
+     */
+    public static <T> T fromJson(final HttpResponse response, final Class<T> type)
+    {
+        try (final Reader reader = JsonResponses.reader(response))
+        {
+            return gson.fromJson(reader, type);
+        }
+        catch (final IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
 }